@@ -0,0 +1,106 @@
+package com.notenoughmail.examplemod.core;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A translatable message, such as a compile error, kept independent of how it is eventually displayed. Arguments
+ * are plain values or other messages, and are substituted for the {@code %s} style placeholders of the translation
+ */
+public record Message(String key, Object... args) {
+
+    /**
+     * Messages with this key display their single argument as is
+     */
+    public static final String LITERAL = "";
+
+    public static Message of(String key, Object... args) {
+        return new Message(key, args);
+    }
+
+    public static Message literal(String text) {
+        return new Message(LITERAL, text);
+    }
+
+    public boolean isLiteral() {
+        return LITERAL.equals(key);
+    }
+
+    /**
+     * @param translations Gives the pattern of a key, or {@code null} if the key is unknown, in which case the key
+     *                     and its arguments are shown
+     */
+    public String format(Function<String, String> translations) {
+        final Object[] formatted = new Object[args.length];
+        for (int i = 0 ; i < args.length ; i++) {
+            formatted[i] = args[i] instanceof Message message ? message.format(translations) : String.valueOf(args[i]);
+        }
+        if (isLiteral()) {
+            return formatted.length == 0 ? "" : (String) formatted[0];
+        }
+        final String pattern = translations.apply(key);
+        if (pattern == null) {
+            return formatted.length == 0 ? key : key + Arrays.toString(formatted);
+        }
+        // Placeholders are replaced the same way the game does, %<letter> takes the next argument and %<n>$<letter> the n-th
+        final StringBuilder builder = new StringBuilder();
+        int next = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            final char c = pattern.charAt(i);
+            if (c == '%' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '%') {
+                builder.append('%');
+                i += 2;
+                continue;
+            }
+            int end = i + 1;
+            while (c == '%' && end < pattern.length() && Character.isDigit(pattern.charAt(end))) {
+                end++;
+            }
+            final boolean positional = end > i + 1 && end < pattern.length() && pattern.charAt(end) == '$';
+            final int conversion = positional ? end + 1 : i + 1;
+            if (c == '%' && conversion < pattern.length() && Character.isLetter(pattern.charAt(conversion))) {
+                final int arg = positional ? Integer.parseInt(pattern, i + 1, end, 10) - 1 : next++;
+                builder.append(arg >= 0 && arg < formatted.length ? formatted[arg] : "");
+                i = conversion + 1;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the message, arguments which are not messages are written as strings
+     */
+    public void write(DataCompound tag) {
+        tag.putString("key", key);
+        for (Object arg : args) {
+            final DataCompound entry = tag.addCompound("args");
+            if (arg instanceof Message message) {
+                message.write(entry.putCompound("message"));
+            } else {
+                entry.putString("value", String.valueOf(arg));
+            }
+        }
+    }
+
+    public static Message read(DataCompound tag) {
+        final List<DataCompound> entries = tag.getCompoundList("args");
+        final Object[] args = new Object[entries.size()];
+        for (int i = 0 ; i < args.length ; i++) {
+            final DataCompound entry = entries.get(i);
+            args[i] = entry.contains("message") ? read(entry.getCompound("message")) : entry.getString("value");
+        }
+        return new Message(tag.getString("key"), args);
+    }
+
+    @Override
+    public String toString() {
+        return format(key -> null);
+    }
+}
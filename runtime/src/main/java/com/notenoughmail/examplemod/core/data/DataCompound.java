@@ -0,0 +1,77 @@
+package com.notenoughmail.examplemod.core.data;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A tree of named values which programs are saved to, so that the runtime does not depend on a specific storage
+ * format. Getters return 0, false, empty strings, arrays, lists or compounds for keys which are missing
+ */
+public interface DataCompound {
+
+    boolean contains(String key);
+
+    /**
+     * @return If the key holds an int, as opposed to a value of any other type
+     */
+    boolean containsInt(String key);
+
+    Set<String> keys();
+
+    int size();
+
+    byte getByte(String key);
+
+    void putByte(String key, byte value);
+
+    int getInt(String key);
+
+    void putInt(String key, int value);
+
+    long getLong(String key);
+
+    void putLong(String key, long value);
+
+    double getDouble(String key);
+
+    void putDouble(String key, double value);
+
+    boolean getBoolean(String key);
+
+    void putBoolean(String key, boolean value);
+
+    String getString(String key);
+
+    void putString(String key, String value);
+
+    int[] getIntArray(String key);
+
+    void putIntArray(String key, int[] value);
+
+    long[] getLongArray(String key);
+
+    void putLongArray(String key, long[] value);
+
+    String[] getStringList(String key);
+
+    void putStringList(String key, String[] value);
+
+    DataCompound getCompound(String key);
+
+    /**
+     * @return A new empty compound, stored under the key
+     */
+    DataCompound putCompound(String key);
+
+    /**
+     * Stores a compound read earlier from a compound of the same kind
+     */
+    void put(String key, DataCompound value);
+
+    List<DataCompound> getCompoundList(String key);
+
+    /**
+     * @return A new empty compound, appended to the list stored under the key
+     */
+    DataCompound addCompound(String key);
+}
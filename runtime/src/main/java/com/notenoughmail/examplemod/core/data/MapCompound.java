@@ -0,0 +1,157 @@
+package com.notenoughmail.examplemod.core.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link DataCompound} held in memory, for running programs outside the game
+ */
+public class MapCompound implements DataCompound {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    @Override
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public boolean containsInt(String key) {
+        return values.get(key) instanceof Integer;
+    }
+
+    @Override
+    public Set<String> keys() {
+        return values.keySet();
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public byte getByte(String key) {
+        return values.get(key) instanceof Number number ? number.byteValue() : 0;
+    }
+
+    @Override
+    public void putByte(String key, byte value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public int getInt(String key) {
+        return values.get(key) instanceof Number number ? number.intValue() : 0;
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public long getLong(String key) {
+        return values.get(key) instanceof Number number ? number.longValue() : 0L;
+    }
+
+    @Override
+    public void putLong(String key, long value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        return values.get(key) instanceof Number number ? number.doubleValue() : 0D;
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        return values.get(key) instanceof Boolean bool && bool;
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public String getString(String key) {
+        return values.get(key) instanceof String str ? str : "";
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public int[] getIntArray(String key) {
+        return values.get(key) instanceof int[] array ? array : new int[0];
+    }
+
+    @Override
+    public void putIntArray(String key, int[] value) {
+        values.put(key, Arrays.copyOf(value, value.length));
+    }
+
+    @Override
+    public long[] getLongArray(String key) {
+        return values.get(key) instanceof long[] array ? array : new long[0];
+    }
+
+    @Override
+    public void putLongArray(String key, long[] value) {
+        values.put(key, Arrays.copyOf(value, value.length));
+    }
+
+    @Override
+    public String[] getStringList(String key) {
+        return values.get(key) instanceof String[] array ? array : new String[0];
+    }
+
+    @Override
+    public void putStringList(String key, String[] value) {
+        values.put(key, Arrays.copyOf(value, value.length));
+    }
+
+    @Override
+    public DataCompound getCompound(String key) {
+        return values.get(key) instanceof MapCompound compound ? compound : new MapCompound();
+    }
+
+    @Override
+    public DataCompound putCompound(String key) {
+        final MapCompound compound = new MapCompound();
+        values.put(key, compound);
+        return compound;
+    }
+
+    @Override
+    public void put(String key, DataCompound value) {
+        values.put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<DataCompound> getCompoundList(String key) {
+        return values.get(key) instanceof List<?> list ? (List<DataCompound>) list : List.of();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataCompound addCompound(String key) {
+        final MapCompound compound = new MapCompound();
+        ((List<DataCompound>) values.computeIfAbsent(key, k -> new ArrayList<DataCompound>())).add(compound);
+        return compound;
+    }
+}
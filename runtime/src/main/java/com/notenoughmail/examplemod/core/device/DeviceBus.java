@@ -0,0 +1,73 @@
+package com.notenoughmail.examplemod.core.device;
+
+import com.notenoughmail.examplemod.core.program.Program;
+
+import java.util.Arrays;
+
+/**
+ * The {@link DevicePort ports} of a {@link Program}, double buffered so that programs never touch the world while
+ * running. Before a tick the ports are {@link #snapshot(Program, IDeviceManager) read} from the program's
+ * {@link IDeviceManager} on the main thread, the program then reads and writes its own copy, and afterwards only
+ * the ports whose value was changed are {@link #commit(Program, IDeviceManager) written} back
+ */
+public class DeviceBus {
+
+    private final double[] input = new double[DevicePort.VALUES.length];
+    /**
+     * The current value of every port, as seen by the program
+     */
+    public final double[] values = new double[DevicePort.VALUES.length];
+    private long dirty = 0;
+
+    public double read(int port) {
+        return values[port];
+    }
+
+    public void write(int port, double value) {
+        values[port] = value;
+        dirty |= 1L << port;
+    }
+
+    public boolean isDirty() {
+        return dirty != 0;
+    }
+
+    /**
+     * Forgets which ports were written, called at the start of every run
+     */
+    public void clearDirty() {
+        dirty = 0;
+    }
+
+    /**
+     * Reads the current value of every port from the manager, must be called from the main thread
+     */
+    public void snapshot(Program program, IDeviceManager manager) {
+        manager.readPorts(program, values);
+        System.arraycopy(values, 0, input, 0, values.length);
+        dirty = 0;
+    }
+
+    /**
+     * Writes every port which was written to a different value than it had in the snapshot to the manager, in
+     * port order, must be called from the main thread
+     */
+    public void commit(Program program, IDeviceManager manager) {
+        long ports = dirty;
+        while (ports != 0) {
+            final int port = Long.numberOfTrailingZeros(ports);
+            ports &= ports - 1;
+            if (Double.doubleToRawLongBits(values[port]) != Double.doubleToRawLongBits(input[port])) {
+                manager.writePort(program, DevicePort.VALUES[port], values[port]);
+                input[port] = values[port];
+            }
+        }
+        dirty = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(input, 0D);
+        Arrays.fill(values, 0D);
+        dirty = 0;
+    }
+}
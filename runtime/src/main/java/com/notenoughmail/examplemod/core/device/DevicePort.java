@@ -15,6 +15,8 @@ public enum DevicePort {
 
     public static final Map<String, DevicePort> ports = new HashMap<>(8 * 8);
 
+    public static final DevicePort[] VALUES = values();
+
     static {
         for (DevicePort port : values()) {
             ports.put(port.name(), port);
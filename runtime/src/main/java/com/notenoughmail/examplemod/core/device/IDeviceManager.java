@@ -0,0 +1,36 @@
+package com.notenoughmail.examplemod.core.device;
+
+import com.notenoughmail.examplemod.core.network.ChannelNetwork;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.IProgramManager;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.jetbrains.annotations.Nullable;
+
+public interface IDeviceManager extends IProgramManager {
+
+    /**
+     * Called on the main thread before the programs run, fills in the current value of each of the program's
+     * {@link DevicePort ports}, indexed by ordinal. Ports which are left untouched keep the value they had
+     */
+    default void readPorts(Program program, double[] ports) {}
+
+    /**
+     * Called on the main thread before the programs run
+     *
+     * @return The network whose channels the program reads and writes, or {@code null} if it is not connected to one
+     */
+    @Nullable
+    default ChannelNetwork getNetwork(Program program) {
+        return null;
+    }
+
+    /**
+     * Called on the main thread, after all programs have run, for every port the program changed the value of
+     */
+    default void writePort(Program program, DevicePort port, double value) {}
+
+    /**
+     * Called on the main thread, after all programs have run, for every channel write the program made
+     */
+    default void writeChannel(Program program, NetworkChannel channel, double value) {}
+}
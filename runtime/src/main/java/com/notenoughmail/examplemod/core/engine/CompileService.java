@@ -0,0 +1,135 @@
+package com.notenoughmail.examplemod.core.engine;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.compile.ProgramCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Parses, links and optimizes programs on background threads, so that pasting a large script or loading a world full
+ * of programs does not stall the main thread. Compilation goes through the {@link ProgramCache}, so identical code
+ * asked for by several threads at once is only compiled once while the others wait for it. A compiled program
+ * carries any compile error as its {@link Program#getError() error}, and can be handed to
+ * {@link ProgramScheduler#addWhenCompiled} to be run from the next tick on
+ */
+public class CompileService {
+
+    @Nullable
+    private ExecutorService executor;
+
+    /**
+     * Starts the compiler threads, until this is called programs are compiled on the calling thread
+     *
+     * @param threads The number of compiler threads, values below 1 use half the number of available processors
+     */
+    public void start(int threads) {
+        shutdown();
+        if (threads < 1) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        final AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, task -> {
+            final Thread thread = new Thread(task, "Program Compiler-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the compiler threads, compilations which have not started yet complete exceptionally
+     */
+    public void shutdown() {
+        if (executor != null) {
+            for (Runnable pending : executor.shutdownNow()) {
+                if (pending instanceof Compilation compilation) {
+                    compilation.future.cancel(false);
+                }
+            }
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    public CompletableFuture<Program> compile(String source, String name) {
+        return compile(source, name, true);
+    }
+
+    /**
+     * @param optimize If the program should run {@link com.notenoughmail.examplemod.core.program.compile.Optimizer optimized} code
+     */
+    public CompletableFuture<Program> compile(String source, String name, boolean optimize) {
+        return submit(() -> new Program(source, name, optimize));
+    }
+
+    /**
+     * Reads a program written by {@link Program#write(DataCompound)} and decodes its code, which {@link Program#read(DataCompound)}
+     * would otherwise leave for whichever thread first runs it. The tag must not be modified until the future completes
+     */
+    public CompletableFuture<Program> read(DataCompound tag) {
+        return submit(() -> {
+            final Program program = Program.read(tag);
+            program.getCode();
+            return program;
+        });
+    }
+
+    /**
+     * Reads many programs at once, such as every program stored in a world being loaded, spread across the compiler threads
+     *
+     * @return The programs, in the order of their tags
+     */
+    public CompletableFuture<List<Program>> readAll(List<? extends DataCompound> tags) {
+        final List<CompletableFuture<Program>> futures = new ArrayList<>(tags.size());
+        for (DataCompound tag : tags) {
+            futures.add(read(tag));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            final List<Program> programs = new ArrayList<>(futures.size());
+            for (CompletableFuture<Program> future : futures) {
+                programs.add(future.join());
+            }
+            return programs;
+        });
+    }
+
+    private CompletableFuture<Program> submit(Supplier<Program> task) {
+        final ExecutorService executor = this.executor;
+        if (executor == null) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        final Compilation compilation = new Compilation(task, new CompletableFuture<>());
+        executor.execute(compilation);
+        return compilation.future;
+    }
+
+    private record Compilation(Supplier<Program> task, CompletableFuture<Program> future) implements Runnable {
+
+        @Override
+        public void run() {
+            if (!future.isDone()) {
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.notenoughmail.examplemod.core.engine;
+
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.device.IDeviceManager;
+import com.notenoughmail.examplemod.core.network.ChannelNetwork;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.ProgramHandle;
+import com.notenoughmail.examplemod.core.program.ProgramRegistry;
+import com.notenoughmail.examplemod.core.program.ProgramShard;
+import com.notenoughmail.examplemod.core.program.compile.BatchInterpreter;
+import com.notenoughmail.examplemod.core.program.compile.CompiledProgram;
+import com.notenoughmail.examplemod.core.program.compile.Operand;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every {@link Program} in its {@link ProgramRegistry registry} across a pool of worker threads.
+ * Programs only touch their own registers and {@link com.notenoughmail.examplemod.core.device.DeviceBus ports}
+ * while running, ports are read before and their changes, along with channel writes, committed after the run on
+ * the thread calling {@link #tick(int)}, in the order the registry's shards were added and the programs within each
+ * shard were added, so the result of a tick does not depend on thread timing
+ * <p>
+ * Programs which share their {@link CompiledProgram code}, such as many machines running the same source, are
+ * run together by the {@link BatchInterpreter}
+ * <p>
+ * A program whose run ends in {@code slp} or {@code wai} is put to sleep, taking it out of the run set entirely so that
+ * a tick only costs as much as the programs which are awake. Sleeping programs are woken by a {@link TimerWheel},
+ * by the channel writes the scheduler publishes, and by device managers reporting {@link #portChanged(Program, DevicePort)
+ * port changes}. A wait that nothing could end, on a channel without a network or a port outside a device manager, only
+ * yields
+ */
+public class ProgramScheduler {
+
+    /**
+     * Below this many programs a tick is run on the calling thread, as handing it to the pool would cost more than it saves
+     */
+    public static final int PARALLEL_THRESHOLD = 64;
+    /**
+     * The number of programs a single worker task runs
+     */
+    public static final int BATCH_SIZE = 16;
+    /**
+     * At least this many programs must share the same code for them to be run together by the {@link BatchInterpreter}
+     */
+    public static final int SIMT_THRESHOLD = 8;
+    /**
+     * The largest number of programs the {@link BatchInterpreter} runs together
+     */
+    public static final int SIMT_LANES = 256;
+
+    public final ProgramRegistry registry = new ProgramRegistry();
+    /**
+     * The shard snapshots of the current tick, so that programs added or removed during the tick are left out of it
+     */
+    private final List<List<ProgramHandle>> snapshots = new ArrayList<>();
+    private final Map<CompiledProgram, List<Program>> byCode = new IdentityHashMap<>();
+    private final List<Unit> units = new ArrayList<>();
+    private final List<ChannelNetwork> pendingNetworks = new ArrayList<>();
+    private final TimerWheel<ProgramHandle> timers = new TimerWheel<>(256);
+    private final Map<ProgramHandle, TimerWheel.Timer<ProgramHandle>> sleeping = new HashMap<>();
+    /**
+     * The programs waiting on a channel of each network, all programs waiting on a network are woken when it is published to
+     */
+    private final Map<ChannelNetwork, List<ProgramHandle>> channelWaiters = new IdentityHashMap<>();
+    /**
+     * Programs whose {@link CompileService compilation} finished, added to the registry at the start of the next tick
+     */
+    private final Queue<Compiled> compiled = new ConcurrentLinkedQueue<>();
+    @Nullable
+    private ForkJoinPool pool;
+
+    public ProgramScheduler() {
+        registry.addListener(new ProgramRegistry.Listener() {
+            @Override
+            public void onRemoved(ProgramHandle handle) {
+                forget(handle);
+            }
+        });
+    }
+
+    /**
+     * Starts the worker pool, until this is called ticks are run on the calling thread
+     *
+     * @param parallelism The number of worker threads, values below 1 use one less than the number of available processors
+     */
+    public void start(int parallelism) {
+        shutdown();
+        if (parallelism < 1) {
+            parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        pool = new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Program Worker-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pool = null;
+        }
+    }
+
+    /**
+     * Snapshots the ports of every program, runs every program once with the given per-program instruction budget,
+     * then commits their writes. The channel writes of the whole tick are published to each network at once, so
+     * programs read them on the next tick. Must be called from the main thread
+     */
+    public void tick(int budget) {
+        addCompiled();
+        timers.advance(this::wake);
+        final List<ProgramShard> shards = registry.getShards();
+        int count = 0;
+        for (ProgramShard shard : shards) {
+            final List<ProgramHandle> handles = shard.getAwakeHandles();
+            snapshots.add(handles);
+            count += handles.size();
+            if (shard.owner instanceof IDeviceManager devices) {
+                for (ProgramHandle handle : handles) {
+                    handle.program.ports.snapshot(handle.program, devices);
+                    handle.program.channels.subscribe(devices.getNetwork(handle.program));
+                }
+            }
+        }
+        groupByCode();
+        if (pool == null || count < PARALLEL_THRESHOLD) {
+            for (Unit unit : units) {
+                unit.run(budget);
+            }
+        } else {
+            pool.invoke(new RunTask(units, 0, units.size(), budget));
+        }
+        // Programs go to sleep before any port is committed, so that a port change committed by a program earlier in
+        // the order still wakes a program later in the order waiting on it
+        for (List<ProgramHandle> snapshot : snapshots) {
+            for (ProgramHandle handle : snapshot) {
+                if (handle.program.getSleepTicks() > 0 || handle.program.getAwaitedOperand() != Operand.NONE) {
+                    sleep(handle);
+                }
+            }
+        }
+        for (int i = 0 ; i < shards.size() ; i++) {
+            final IDeviceManager devices = shards.get(i).owner instanceof IDeviceManager owner ? owner : null;
+            for (ProgramHandle handle : snapshots.get(i)) {
+                final Program program = handle.program;
+                if (devices != null) {
+                    if (program.ports.isDirty()) {
+                        program.ports.commit(program, devices);
+                    }
+                    if (!program.writes.isEmpty()) {
+                        program.writes.commit(program, devices);
+                    }
+                }
+                final ChannelNetwork network = program.channels.getNetwork();
+                if (network != null && !program.writes.isEmpty()) {
+                    if (!network.hasPending()) {
+                        pendingNetworks.add(network);
+                    }
+                    program.writes.publish(network);
+                }
+            }
+        }
+        for (ChannelNetwork network : pendingNetworks) {
+            final int published = network.publish();
+            final List<ProgramHandle> waiters = channelWaiters.get(network);
+            if (waiters != null) {
+                wakeWaiters(waiters, published);
+                if (waiters.isEmpty()) {
+                    channelWaiters.remove(network);
+                }
+            }
+        }
+        pendingNetworks.clear();
+        snapshots.clear();
+    }
+
+    /**
+     * Wakes a sleeping program so that it runs again from the next tick on, whatever it was waiting for. Must be called
+     * from the main thread
+     */
+    public void wake(Program program) {
+        final ProgramHandle handle = program.getHandle();
+        if (handle != null) {
+            wake(handle);
+        }
+    }
+
+    /**
+     * Called by device managers on the main thread when the value of a port changes, wakes the program if it is
+     * waiting on that port
+     */
+    public void portChanged(Program program, DevicePort port) {
+        final ProgramHandle handle = program.getHandle();
+        if (handle != null && handle.isAsleep() && program.getAwaitedOperand() == Operand.of(Operand.PORT, port.ordinal())) {
+            wake(handle);
+        }
+    }
+
+    /**
+     * Adds a program to the registry once it finished compiling, at the start of the first tick after. May be called
+     * from any thread
+     *
+     * @return The program's handle, completed on the thread calling {@link #tick(int)}. Completes exceptionally if
+     * compiling failed or the shard was removed in the meantime
+     */
+    public CompletableFuture<ProgramHandle> addWhenCompiled(ProgramShard shard, CompletableFuture<Program> compiling) {
+        final CompletableFuture<ProgramHandle> added = new CompletableFuture<>();
+        compiling.whenComplete((program, error) -> compiled.add(new Compiled(shard, program, error, added)));
+        return added;
+    }
+
+    private void addCompiled() {
+        Compiled next;
+        while ((next = compiled.poll()) != null) {
+            if (next.error != null) {
+                next.added.completeExceptionally(next.error);
+            } else {
+                try {
+                    next.added.complete(registry.add(next.shard, next.program));
+                } catch (RuntimeException e) {
+                    next.added.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of programs which are asleep
+     */
+    public int getSleepingCount() {
+        int count = 0;
+        for (ProgramShard shard : registry.getShards()) {
+            count += shard.size() - shard.getAwakeHandles().size();
+        }
+        return count;
+    }
+
+    private void sleep(ProgramHandle handle) {
+        final Program program = handle.program;
+        if (handle.isRemoved()) {
+            return;
+        }
+        if (program.getSleepTicks() > 0) {
+            sleeping.put(handle, timers.schedule(handle, program.getSleepTicks()));
+        } else if (Operand.kind(program.getAwaitedOperand()) == Operand.PORT) {
+            if (!(handle.shard.owner instanceof IDeviceManager)) {
+                // Only device managers report port changes, so the wait is only a yield
+                return;
+            }
+        } else if (Operand.kind(program.getAwaitedOperand()) == Operand.CHANNEL) {
+            final ChannelNetwork network = program.channels.getNetwork();
+            if (network == null) {
+                // Nothing could ever wake the program, so the wait is only a yield
+                return;
+            }
+            channelWaiters.computeIfAbsent(network, key -> new ArrayList<>()).add(handle);
+        }
+        registry.setAsleep(handle, true);
+    }
+
+    private void wake(ProgramHandle handle) {
+        if (handle.isAsleep()) {
+            forget(handle);
+            registry.setAsleep(handle, false);
+        }
+    }
+
+    /**
+     * Drops whatever is waiting to wake the program
+     */
+    private void forget(ProgramHandle handle) {
+        final TimerWheel.Timer<ProgramHandle> timer = sleeping.remove(handle);
+        if (timer != null) {
+            timer.cancel();
+        }
+        if (Operand.kind(handle.program.getAwaitedOperand()) == Operand.CHANNEL) {
+            final ChannelNetwork network = handle.program.channels.getNetwork();
+            final List<ProgramHandle> waiters = network == null ? null : channelWaiters.get(network);
+            if (waiters != null) {
+                waiters.remove(handle);
+            }
+        }
+    }
+
+    /**
+     * Wakes the programs waiting on one of the published channels, the others are kept in the list
+     */
+    private void wakeWaiters(List<ProgramHandle> waiters, int published) {
+        int kept = 0;
+        for (int i = 0 ; i < waiters.size() ; i++) {
+            final ProgramHandle handle = waiters.get(i);
+            if ((published & (1 << Operand.index(handle.program.getAwaitedOperand()))) != 0) {
+                registry.setAsleep(handle, false);
+            } else {
+                waiters.set(kept++, handle);
+            }
+        }
+        waiters.subList(kept, waiters.size()).clear();
+    }
+
+    /**
+     * Splits the programs into units of work, programs sharing their code with enough others are run together.
+     * Programs being profiled are always run on their own
+     */
+    private void groupByCode() {
+        byCode.clear();
+        units.clear();
+        for (List<ProgramHandle> handles : snapshots) {
+            for (ProgramHandle handle : handles) {
+                final Program program = handle.program;
+                if (program.isProfiling()) {
+                    units.add(new Unit(program.getCode(), new Program[]{program}));
+                } else {
+                    byCode.computeIfAbsent(program.getCode(), code -> new ArrayList<>()).add(program);
+                }
+            }
+        }
+        for (Map.Entry<CompiledProgram, List<Program>> entry : byCode.entrySet()) {
+            final List<Program> group = entry.getValue();
+            if (group.size() < SIMT_THRESHOLD) {
+                for (Program program : group) {
+                    units.add(new Unit(entry.getKey(), new Program[]{program}));
+                }
+            } else {
+                for (int from = 0 ; from < group.size() ; from += SIMT_LANES) {
+                    units.add(new Unit(entry.getKey(), group.subList(from, Math.min(group.size(), from + SIMT_LANES)).toArray(new Program[0])));
+                }
+            }
+        }
+    }
+
+    private record Unit(CompiledProgram code, Program[] programs) {
+
+        void run(int budget) {
+            if (programs.length == 1) {
+                programs[0].run(budget);
+            } else {
+                BatchInterpreter.run(code, programs, budget);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class RunTask extends RecursiveAction {
+
+        private final List<Unit> units;
+        private final int from;
+        private final int to;
+        private final int budget;
+
+        RunTask(List<Unit> units, int from, int to, int budget) {
+            this.units = units;
+            this.from = from;
+            this.to = to;
+            this.budget = budget;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 || programCount() <= BATCH_SIZE) {
+                for (int i = from ; i < to ; i++) {
+                    units.get(i).run(budget);
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RunTask(units, from, middle, budget), new RunTask(units, middle, to, budget));
+            }
+        }
+
+        private int programCount() {
+            int count = 0;
+            for (int i = from ; i < to ; i++) {
+                count += units.get(i).programs.length;
+            }
+            return count;
+        }
+    }
+
+    private record Compiled(ProgramShard shard, @Nullable Program program, @Nullable Throwable error, CompletableFuture<ProgramHandle> added) {}
+}
@@ -0,0 +1,76 @@
+package com.notenoughmail.examplemod.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel counting in ticks. Timers are put in the slot of the tick they expire on, so advancing by a tick
+ * only looks at that one slot rather than at every pending timer. Timers further away than a full turn of the wheel
+ * share a slot with nearer ones and are passed over until their turn comes
+ * <p>
+ * Not thread safe, must only be used from the main thread
+ */
+final class TimerWheel<T> {
+
+    private final List<Timer<T>>[] slots;
+    private final int mask;
+    private long now = 0;
+
+    /**
+     * @param slots The number of slots, a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(int slots) {
+        this.slots = new List[slots];
+        this.mask = slots - 1;
+        for (int i = 0 ; i < slots ; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * @param delay The number of ticks until the timer expires, at least one
+     */
+    Timer<T> schedule(T value, int delay) {
+        final Timer<T> timer = new Timer<>(value, now + Math.max(1, delay));
+        slots[(int) (timer.deadline & mask)].add(timer);
+        return timer;
+    }
+
+    /**
+     * Moves to the next tick, handing the value of every timer expiring on it to the consumer
+     */
+    void advance(Consumer<T> expired) {
+        now++;
+        final List<Timer<T>> slot = slots[(int) (now & mask)];
+        for (int i = 0 ; i < slot.size() ; ) {
+            final Timer<T> timer = slot.get(i);
+            if (timer.cancelled || timer.deadline <= now) {
+                slot.set(i, slot.get(slot.size() - 1));
+                slot.remove(slot.size() - 1);
+                if (!timer.cancelled) {
+                    expired.accept(timer.value);
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    static final class Timer<T> {
+
+        final T value;
+        final long deadline;
+        private boolean cancelled = false;
+
+        Timer(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
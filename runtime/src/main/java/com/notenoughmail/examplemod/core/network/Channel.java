@@ -0,0 +1,97 @@
+package com.notenoughmail.examplemod.core.network;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A single {@link NetworkChannel} of a {@link ChannelNetwork}, written by the main thread and read by any number of
+ * programs without locking. Messages are staged by {@link #offer(double)} and only become visible to readers once
+ * they are {@link #publish() published}, so all the messages of a tick are fanned out in a single step
+ * <p>
+ * In {@link ChannelMode#QUEUE queue} mode messages are kept in a ring buffer shared by all readers, each reader
+ * holds only its own cursor. The writer announces which slot it is about to overwrite through {@link #claimed}
+ * before writing it, readers check that announcement after reading a slot and retry if it may have been overwritten
+ */
+final class Channel {
+
+    static final int CAPACITY = 64;
+    private static final int MASK = CAPACITY - 1;
+
+    private final double[] ring = new double[CAPACITY];
+    /**
+     * The number of messages whose slot the writer has started writing
+     */
+    private volatile long claimed = 0;
+    /**
+     * The number of messages visible to readers
+     */
+    private volatile long published = 0;
+    private volatile double latest = 0D;
+    volatile ChannelMode mode = ChannelMode.LATEST;
+
+    // Only accessed by the writer
+    private long written = 0;
+    private double pending = 0D;
+    private boolean hasPending = false;
+
+    void offer(double value) {
+        pending = value;
+        hasPending = true;
+        if (mode == ChannelMode.QUEUE) {
+            claimed = written + 1;
+            VarHandle.storeStoreFence();
+            ring[(int) written & MASK] = value;
+            written++;
+        }
+    }
+
+    boolean hasPending() {
+        return hasPending;
+    }
+
+    /**
+     * @return If there was anything to publish
+     */
+    boolean publish() {
+        if (hasPending) {
+            latest = pending;
+            published = written;
+            hasPending = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of messages published so far, the cursor of a reader which has read all of them
+     */
+    long head() {
+        return published;
+    }
+
+    /**
+     * @param cursors The reader's cursor of every channel, advanced past the message read
+     */
+    double read(long[] cursors, int index) {
+        if (mode == ChannelMode.LATEST) {
+            return latest;
+        }
+        while (true) {
+            final long head = published;
+            long cursor = cursors[index];
+            if (cursor >= head) {
+                return 0D;
+            }
+            if (head - cursor > CAPACITY) {
+                cursor = head - CAPACITY;
+            }
+            final double value = ring[(int) cursor & MASK];
+            VarHandle.loadLoadFence();
+            if (claimed - cursor <= CAPACITY) {
+                cursors[index] = cursor + 1;
+                return value;
+            }
+            // The slot was overwritten while it was being read, skip ahead
+            cursors[index] = claimed - CAPACITY;
+        }
+    }
+}
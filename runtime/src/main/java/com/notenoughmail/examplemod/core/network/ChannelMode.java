@@ -0,0 +1,18 @@
+package com.notenoughmail.examplemod.core.network;
+
+/**
+ * How the messages written to a {@link NetworkChannel} are delivered to the programs reading it
+ */
+public enum ChannelMode {
+    /**
+     * Reads give the last value written, so readers only ever see the most recent message
+     */
+    LATEST,
+    /**
+     * Messages are queued and each reader reads every message in order, reading 0 once it has caught up. Readers
+     * which fall more than {@link Channel#CAPACITY} messages behind skip to the oldest one still queued
+     */
+    QUEUE;
+
+    public static final ChannelMode[] VALUES = values();
+}
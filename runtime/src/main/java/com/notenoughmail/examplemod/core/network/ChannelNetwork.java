@@ -0,0 +1,67 @@
+package com.notenoughmail.examplemod.core.network;
+
+/**
+ * A set of programs sharing the eight {@link NetworkChannel channels}. Channel writes are collected while programs
+ * run and fanned out once per tick by the {@link com.notenoughmail.examplemod.core.engine.ProgramScheduler scheduler},
+ * after which every program subscribed to the network reads them without locking, no matter how many there are
+ */
+public class ChannelNetwork {
+
+    private final Channel[] channels = new Channel[NetworkChannel.VALUES.length];
+
+    public ChannelNetwork() {
+        for (int i = 0 ; i < channels.length ; i++) {
+            channels[i] = new Channel();
+        }
+    }
+
+    public ChannelMode getMode(NetworkChannel channel) {
+        return channels[channel.ordinal()].mode;
+    }
+
+    /**
+     * Must be called from the main thread
+     */
+    public void setMode(NetworkChannel channel, ChannelMode mode) {
+        channels[channel.ordinal()].mode = mode;
+    }
+
+    /**
+     * Stages a message, it is not visible to readers until the network is {@link #publish() published}. Must be
+     * called from the main thread
+     */
+    public void offer(int channel, double value) {
+        channels[channel].offer(value);
+    }
+
+    /**
+     * @return If any message was offered since the last time the network was published
+     */
+    public boolean hasPending() {
+        for (Channel channel : channels) {
+            if (channel.hasPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes every staged message visible to readers. Must be called from the main thread
+     *
+     * @return A mask of the channels which received messages, bit {@code i} standing for the channel with ordinal {@code i}
+     */
+    public int publish() {
+        int published = 0;
+        for (int i = 0 ; i < channels.length ; i++) {
+            if (channels[i].publish()) {
+                published |= 1 << i;
+            }
+        }
+        return published;
+    }
+
+    Channel channel(int channel) {
+        return channels[channel];
+    }
+}
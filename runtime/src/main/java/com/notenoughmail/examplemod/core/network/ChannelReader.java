@@ -0,0 +1,37 @@
+package com.notenoughmail.examplemod.core.network;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A program's subscription to a {@link ChannelNetwork}, holding how far it has read each {@link ChannelMode#QUEUE queued}
+ * channel. Programs without a network read 0 from every channel
+ */
+public class ChannelReader {
+
+    @Nullable
+    private ChannelNetwork network;
+    private final long[] cursors = new long[NetworkChannel.VALUES.length];
+
+    @Nullable
+    public ChannelNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Subscribes to the network, starting after the messages already published to it. Subscribing to the current
+     * network again does nothing
+     */
+    public void subscribe(@Nullable ChannelNetwork network) {
+        if (network == this.network) {
+            return;
+        }
+        this.network = network;
+        for (int i = 0 ; i < cursors.length ; i++) {
+            cursors[i] = network == null ? 0 : network.channel(i).head();
+        }
+    }
+
+    public double read(int channel) {
+        return network == null ? 0D : network.channel(channel).read(cursors, channel);
+    }
+}
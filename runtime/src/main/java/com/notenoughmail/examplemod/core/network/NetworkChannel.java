@@ -9,6 +9,8 @@ public enum NetworkChannel {
 
     public static final Map<String, NetworkChannel> channels = new HashMap<>(8);
 
+    public static final NetworkChannel[] VALUES = values();
+
     static {
         for  (NetworkChannel channel : values()) {
             channels.put(channel.name(), channel);
@@ -0,0 +1,215 @@
+package com.notenoughmail.examplemod.core.network;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which devices are connected to each other and the {@link ChannelNetwork} each connected segment shares,
+ * so that finding the network of a device is a single lookup no matter how large the segment is
+ * <p>
+ * Every node points directly at its segment. Connecting two segments moves the members of the smaller one into the
+ * larger, so a node moves at most a logarithmic number of times while segments only grow. Disconnecting searches
+ * outwards from both ends of the removed connection one step at a time, stopping as soon as either search runs out
+ * or finds the other end, so a split only costs as much as its smaller half
+ * <p>
+ * Not thread safe, must only be used from the main thread
+ *
+ * @param <K> The type identifying a device, such as its position
+ */
+public class NetworkTopology<K> {
+
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+
+    public boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * @return The network of the node's segment, or {@code null} if the node has not been added
+     */
+    @Nullable
+    public ChannelNetwork getNetwork(K key) {
+        final Node<K> node = nodes.get(key);
+        return node == null ? null : node.segment.network;
+    }
+
+    /**
+     * @return The number of nodes in the node's segment, or 0 if the node has not been added
+     */
+    public int segmentSize(K key) {
+        final Node<K> node = nodes.get(key);
+        return node == null ? 0 : node.segment.members.size();
+    }
+
+    /**
+     * Adds a node in a segment of its own, adding a node which already exists does nothing
+     */
+    public void add(K key) {
+        nodes.computeIfAbsent(key, k -> {
+            final Node<K> node = new Node<>();
+            node.segment = new Segment<>(new ChannelNetwork());
+            node.segment.members.add(node);
+            return node;
+        });
+    }
+
+    /**
+     * Removes a node and all of its connections, splitting its segment if it was the only path between others
+     */
+    public void remove(K key) {
+        final Node<K> node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        for (Node<K> neighbour : List.copyOf(node.neighbours)) {
+            disconnect(node, neighbour);
+        }
+        node.segment.members.remove(node);
+        nodes.remove(key);
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+    /**
+     * Connects two nodes, adding them first if needed
+     */
+    public void connect(K a, K b) {
+        add(a);
+        add(b);
+        final Node<K> first = nodes.get(a);
+        final Node<K> second = nodes.get(b);
+        if (first == second || !first.neighbours.add(second)) {
+            return;
+        }
+        second.neighbours.add(first);
+        if (first.segment != second.segment) {
+            merge(first.segment, second.segment);
+        }
+    }
+
+    /**
+     * Removes the connection between two nodes, splitting their segment if it was the only path between them
+     */
+    public void disconnect(K a, K b) {
+        final Node<K> first = nodes.get(a);
+        final Node<K> second = nodes.get(b);
+        if (first != null && second != null) {
+            disconnect(first, second);
+        }
+    }
+
+    private void disconnect(Node<K> first, Node<K> second) {
+        if (!first.neighbours.remove(second)) {
+            return;
+        }
+        second.neighbours.remove(first);
+        final Set<Node<K>> separated = smallerSideIfSplit(first, second);
+        if (separated != null) {
+            final Segment<K> segment = new Segment<>(new ChannelNetwork());
+            for (Node<K> node : separated) {
+                node.segment.members.remove(node);
+                node.segment = segment;
+                segment.members.add(node);
+            }
+        }
+    }
+
+    /**
+     * The larger segment, along with its network, absorbs the smaller one
+     */
+    private static <K> void merge(Segment<K> a, Segment<K> b) {
+        final Segment<K> into = a.members.size() >= b.members.size() ? a : b;
+        final Segment<K> from = into == a ? b : a;
+        for (Node<K> node : from.members) {
+            node.segment = into;
+        }
+        into.members.addAll(from.members);
+        from.members.clear();
+    }
+
+    /**
+     * Searches from both nodes in lockstep
+     *
+     * @return The nodes reachable from whichever node's search ran out first, or {@code null} if the nodes are still
+     * connected
+     */
+    @Nullable
+    private static <K> Set<Node<K>> smallerSideIfSplit(Node<K> first, Node<K> second) {
+        final Search<K> a = new Search<>(first);
+        final Search<K> b = new Search<>(second);
+        while (true) {
+            if (a.step(second)) {
+                return null;
+            }
+            if (a.isDone()) {
+                return a.visited;
+            }
+            if (b.step(first)) {
+                return null;
+            }
+            if (b.isDone()) {
+                return b.visited;
+            }
+        }
+    }
+
+    private static final class Node<K> {
+
+        final Set<Node<K>> neighbours = new HashSet<>(4);
+        Segment<K> segment;
+    }
+
+    private static final class Segment<K> {
+
+        final ChannelNetwork network;
+        final Set<Node<K>> members = new HashSet<>();
+
+        Segment(ChannelNetwork network) {
+            this.network = network;
+        }
+    }
+
+    private static final class Search<K> {
+
+        final Set<Node<K>> visited = new HashSet<>();
+        final ArrayDeque<Node<K>> queue = new ArrayDeque<>();
+
+        Search(Node<K> start) {
+            visited.add(start);
+            queue.add(start);
+        }
+
+        boolean isDone() {
+            return queue.isEmpty();
+        }
+
+        /**
+         * Visits the neighbours of the next node in the queue
+         *
+         * @return If the target was found
+         */
+        boolean step(Node<K> target) {
+            final Node<K> node = queue.poll();
+            if (node == null) {
+                return false;
+            }
+            for (Node<K> neighbour : node.neighbours) {
+                if (neighbour == target) {
+                    return true;
+                }
+                if (visited.add(neighbour)) {
+                    queue.add(neighbour);
+                }
+            }
+            return false;
+        }
+    }
+}
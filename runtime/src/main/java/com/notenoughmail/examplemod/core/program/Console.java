@@ -0,0 +1,224 @@
+package com.notenoughmail.examplemod.core.program;
+
+import com.notenoughmail.examplemod.core.Message;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The last {@link #CAPACITY} messages a {@link Program} printed with {@code con} and {@code prt}. Messages are stored
+ * as the raw values and pooled strings they were printed from and only formatted when someone looks at them, so
+ * printing allocates nothing. A message identical to the previous one is counted against it instead of being
+ * stored again, so a loop printing the same thing does not push everything else out
+ * <p>
+ * Every message stored gets the next sequence number, which clearing the console does not reset, so that a
+ * {@link com.notenoughmail.examplemod.core.sync.SyncTracker sync tracker} can tell which messages are new
+ */
+public class Console {
+
+    public static final int CAPACITY = 32;
+
+    private final int[] counts = new int[CAPACITY];
+    private final double[] values = new double[CAPACITY * 3];
+    private final String[] texts = new String[CAPACITY];
+    private final int[] repeats = new int[CAPACITY];
+    /**
+     * The number of messages ever stored, the newest is at {@code (written - 1) % CAPACITY}
+     */
+    private long written = 0;
+    /**
+     * The sequence number of the first message stored since the console was last cleared
+     */
+    private long start = 0;
+
+    /**
+     * Prints between one and three values
+     */
+    public void values(int count, double a, double b, double c) {
+        if (written > start) {
+            final int last = slot(written - 1);
+            if (texts[last] == null && counts[last] == count && sameValues(last, count, a, b, c)) {
+                repeats[last]++;
+                return;
+            }
+        }
+        final int slot = slot(written++);
+        counts[slot] = count;
+        values[slot * 3] = a;
+        values[slot * 3 + 1] = b;
+        values[slot * 3 + 2] = c;
+        texts[slot] = null;
+        repeats[slot] = 1;
+    }
+
+    /**
+     * Prints a string, which should come from a program's string pool so that it is not copied for every print
+     */
+    public void text(String text) {
+        if (written > start) {
+            final int last = slot(written - 1);
+            if (text.equals(texts[last])) {
+                repeats[last]++;
+                return;
+            }
+        }
+        final int slot = slot(written++);
+        counts[slot] = 0;
+        texts[slot] = text;
+        repeats[slot] = 1;
+    }
+
+    /**
+     * @return The number of messages held, at most {@link #CAPACITY}
+     */
+    public int size() {
+        return (int) Math.min(written - start, CAPACITY);
+    }
+
+    public boolean isEmpty() {
+        return written == start;
+    }
+
+    public void clear() {
+        start = written;
+        Arrays.fill(texts, null);
+    }
+
+    /**
+     * @return The sequence number the next message will get
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return The sequence number of the first message stored since the console was last cleared
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @param sequence The sequence number of a message which is still held
+     * @return The number of times the message was printed in a row
+     */
+    public int getRepeats(long sequence) {
+        return repeats[slot(sequence)];
+    }
+
+    /**
+     * Clears the console and numbers the next message {@code sequence}, for consoles mirroring another one
+     */
+    public void restartAt(long sequence) {
+        written = sequence;
+        start = sequence;
+        Arrays.fill(texts, null);
+    }
+
+    /**
+     * Forgets the messages printed since the console held {@code written} messages, for undoing part of a run
+     *
+     * @param repeats The repeat count the newest message had back then
+     */
+    public void truncate(long written, int repeats) {
+        // Messages pushed out by the forgotten ones are gone for good
+        start = Math.min(written, Math.max(start, this.written - CAPACITY));
+        this.written = written;
+        if (written > start) {
+            this.repeats[slot(written - 1)] = repeats;
+        }
+    }
+
+    /**
+     * Writes the raw form of a message which is still held
+     */
+    public void write(long sequence, DataOutput out) throws IOException {
+        final int slot = slot(sequence);
+        out.writeByte(texts[slot] != null ? 0 : counts[slot]);
+        out.writeInt(repeats[slot]);
+        if (texts[slot] != null) {
+            out.writeUTF(texts[slot]);
+        } else {
+            for (int i = 0 ; i < counts[slot] ; i++) {
+                out.writeLong(Double.doubleToRawLongBits(values[slot * 3 + i]));
+            }
+        }
+    }
+
+    /**
+     * Stores a message written by {@link #write(long, DataOutput)} under its sequence number, replacing the message
+     * already stored under it
+     */
+    public void read(long sequence, DataInput in) throws IOException {
+        final int slot = slot(sequence);
+        final int count = in.readByte();
+        if (count < 0 || count > 3) {
+            throw new IOException("Invalid console message with " + count + " values");
+        }
+        counts[slot] = count;
+        repeats[slot] = in.readInt();
+        if (count == 0) {
+            texts[slot] = in.readUTF();
+        } else {
+            texts[slot] = null;
+            for (int i = 0 ; i < count ; i++) {
+                values[slot * 3 + i] = Double.longBitsToDouble(in.readLong());
+            }
+        }
+        written = Math.max(written, sequence + 1);
+    }
+
+    /**
+     * @param index The index of the message, 0 being the oldest held
+     */
+    public Message format(int index) {
+        final int slot = slot(written - size() + index);
+        final String text;
+        if (texts[slot] != null) {
+            text = texts[slot];
+        } else {
+            final StringBuilder builder = new StringBuilder();
+            builder.append(values[slot * 3]);
+            for (int i = 1 ; i < counts[slot] ; i++) {
+                builder.append(' ').append(values[slot * 3 + i]);
+            }
+            text = builder.toString();
+        }
+        return repeats[slot] == 1 ?
+                Message.of("message.examplemod.con", text) :
+                Message.of("message.examplemod.con_repeated", text, repeats[slot]);
+    }
+
+    /**
+     * @return Every message held, oldest first
+     */
+    public List<Message> format() {
+        final List<Message> messages = new ArrayList<>(size());
+        for (int i = 0 ; i < size() ; i++) {
+            messages.add(format(i));
+        }
+        return messages;
+    }
+
+    @Nullable
+    public Message formatLast() {
+        return isEmpty() ? null : format(size() - 1);
+    }
+
+    private static int slot(long index) {
+        return (int) (index % CAPACITY);
+    }
+
+    private boolean sameValues(int slot, int count, double a, double b, double c) {
+        return same(values[slot * 3], a) && (count < 2 || same(values[slot * 3 + 1], b)) && (count < 3 || same(values[slot * 3 + 2], c));
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+}
@@ -0,0 +1,7 @@
+package com.notenoughmail.examplemod.core.program;
+
+/**
+ * Something which owns programs, such as a machine. Its programs live in the {@link ProgramShard} it was given by
+ * {@link ProgramRegistry#addShard(IProgramManager)}
+ */
+public interface IProgramManager {}
@@ -0,0 +1,172 @@
+package com.notenoughmail.examplemod.core.program;
+
+import com.notenoughmail.examplemod.core.Message;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <br>{@link Operation#nil}: Legacy empty operation representing a "null" operation. Not able to written in programs. Errors the program when called
+ * <br>{@link Operation#label}: Internal operator that is used to hold the position of a jump label in a program. Written in programs as: <strong>{@code <label>:}</strong>
+ * <br>{@link Operation#add}: Adds the 2nd & 3rd argument together and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#sub}: Subtracts the 3rd argument from the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#mul}: Multiplies the 2nd and 3rd arguments and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#div}: Divides the 2nd argument by the 3rd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#pow}: Takes the power of the 2nd argument to the 3rd argument (arg2^arg3) and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#set}: Takes the value in the 2nd argument and puts in into the register/port/channel in the 1st argument
+ * <br>{@link Operation#eql}: Equates the 2nd and 3rd arguments, if equal, puts a true value (1.0), else false (0.0), into the register/port/channel of the 1st argument
+ * <br>{@link Operation#eqz}: Equates the 2nd argument to zero, if equal, puts a true value (1.0), else false (0.0), into the register/port/channel of the 1st argument
+ * <br>{@link Operation#ltz}: Compares the 2nd argument to 0, if less than, puts a true value (1.0), else false (0.0) into the register/port/channel of the 1st argument
+ * <br>{@link Operation#gtz}: Compares the 2nd argument to 0, if greater than, puts a true value (1.0), else false (0.0) into the register/port/channel in the 1st argument
+ * <br>{@link Operation#mod}: Performs a modulus operation between the 2nd and 3rd arguments (arg2 % arg3) and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#and}: Performs a bitwise and on the signed-64-bit-integer representation of the 2nd and 3rd arguments and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#xor}: Performs a bitwise xor on the signed-64-bit-integer representation of the 2nd and 3rd arguments and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#not}: Performs a bitwise not on the signed-64-bit-integer representation of the 2nd and 3rd arguments and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#bsl}: Performs a leftward bitshift on the value in the 2nd argument, shifting by the amount in the 3rd argument, and putting the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#bsr}: Performs a rightward bitshift on the value in the 2nd argument, shifting by the amount in the 3rd argument, and putting the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#or}: Performs a bitwise or on the signed-64-bit-integer representation of the 2nd and 3rd arguments and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#con}: Sends the provided arguments to the program's console. Important: aliases will be transformed to their real values
+ * <br>{@link Operation#abs}: Takes the absolute value of the 2nd argument and puts it into the register/port/channel in the 1st argument
+ * <br>{@link Operation#flr}: Rounds, towards positive infinity, the value in the 2nd argument to the nearest integer less than or equal to the value and puts it into the register/port/channel in the 1st argument
+ * <br>{@link Operation#cel}: Rounds, towards negative infinity, the value in the 2nd argument to the nearest integer greater than or equal to the value and puts it into the register/port/channel in the 1st argument
+ * <br>{@link Operation#log}: Takes the base-10 log of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#max}: Finds the maximum value of the 2nd and 3rd arguments and puts it into the register/port/channel in the 1st argument
+ * <br>{@link Operation#min}: Fins the minimum value of the 2nd and 3rd arguments and puts it into the register/port/channel in the 1st argument
+ * <br>{@link Operation#ln}: Takes the natural log of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#sin}: Takes the sine value of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#cos}: Takes the cosine value of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#tan}: Takes the tangent value of the 2nd argument and puts the result into the register/port/channel in the 1st  argument
+ * <br>{@link Operation#cbr}: Takes the cube root of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#sqr}: Takes the square root of the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#neg}: Takes the negative value of the value in the 2nd argument and puts the result into the register/port/channel in the 1st argument
+ * <br>{@link Operation#jmp}: Jumps the program to the label in the 1st argument. Errors the program if label does not exist
+ * <br>{@link Operation#prt}: Sends the 1st argument to the console, where the 2nd argument is everything between the end of the prt keyword and the end of the line or the beginning of a comment. Important: aliases will <strong>not</strong> be transformed to their real values
+ * <br>{@link Operation#yld}: Stops the program for the rest of the tick, it will resume from the next line on the next tick
+ * <br>{@link Operation#bez}: Jumps the program to the label in the 1st argument if the 2nd argument is zero. Errors the program if label does not exist
+ * <br>{@link Operation#bnz}: Jumps the program to the label in the 1st argument if the 2nd argument is not zero. Errors the program if label does not exist
+ * <br>{@link Operation#blt}: Jumps the program to the label in the 1st argument if the 2nd argument is less than the 3rd argument. Errors the program if label does not exist
+ * <br>{@link Operation#bgt}: Jumps the program to the label in the 1st argument if the 2nd argument is greater than the 3rd argument. Errors the program if label does not exist
+ * <br>{@link Operation#slp}: Stops the program for the number of ticks in the 1st argument, at least one, it will resume from the next line afterwards
+ * <br>{@link Operation#wai}: Stops the program until the value of the port or channel in the 1st argument changes, it will resume from the next line on the tick after
+ */
+public enum Operation {
+    nil(1, false, false),
+    label(1, false, false),
+    add(4),
+    sub(4),
+    mul(4),
+    div(4),
+    pow(4),
+    set(3),
+    eql(4),
+    eqz(3),
+    ltz(3),
+    gtz(3),
+    mod(4),
+    and(4),
+    xor(4),
+    not(3),
+    bsl(4),
+    bsr(4),
+    or(4),
+    con(2, true, false),
+    abs(3),
+    flr(3),
+    cel(3),
+    log(3),
+    max(4),
+    min(4),
+    ln(3),
+    sin(3),
+    cos(3),
+    tan(3),
+    cbr(3),
+    sqr(3),
+    neg(3),
+    jmp(2, true, false),
+    prt(2, true, false),
+    yld(1, true, false),
+    bez(3, true, false),
+    bnz(3, true, false),
+    blt(4, true, false),
+    bgt(4, true, false),
+    slp(2, true, false),
+    wai(2, true, false);
+
+    public static final Map<String, Operation> operations = new HashMap<>();
+
+    static {
+        for (Operation op : values()) {
+            if (op.writeable) {
+                operations.put(op.name(), op);
+            }
+        }
+    }
+
+    public static final Operation[] VALUES = values();
+
+    private final int minArgs;
+    private final boolean writeable;
+    private final boolean assigns;
+
+    Operation(int minArgs) {
+        this(minArgs, true, true);
+    }
+
+    Operation(int minArgs, boolean writeable, boolean assigns) {
+        this.minArgs = minArgs;
+        this.writeable = writeable;
+        this.assigns = assigns;
+    }
+
+    /**
+     * Finds the writeable operation named by the region {@code [start, end)} of the char sequence
+     */
+    @Nullable
+    public static Operation find(CharSequence chars, int start, int end) {
+        final int length = end - start;
+        search:
+        for (Operation op : VALUES) {
+            final String name = op.name();
+            if (op.writeable && name.length() == length) {
+                for (int i = 0 ; i < length ; i++) {
+                    if (name.charAt(i) != chars.charAt(start + i)) {
+                        continue search;
+                    }
+                }
+                return op;
+            }
+        }
+        return null;
+    }
+
+    public static Message requiresRDC(String op, Object arg) {
+        return Message.of("message.examplemod.requires_rdc", op, arg.getClass().getName());
+    }
+
+    public int minArgs() {
+        return minArgs;
+    }
+
+    /**
+     * @return If the operation puts its result into the register/port/channel in the 1st argument
+     */
+    public boolean assigns() {
+        return assigns;
+    }
+
+    /**
+     * @return If the operation may continue execution at the label in its 1st argument
+     */
+    public boolean jumps() {
+        return this == jmp || this == bez || this == bnz || this == blt || this == bgt;
+    }
+
+    /**
+     * @return If the operation stops the program for the rest of the tick, to resume from the next instruction
+     */
+    public boolean suspends() {
+        return this == yld || this == slp || this == wai;
+    }
+}
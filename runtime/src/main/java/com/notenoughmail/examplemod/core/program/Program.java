@@ -0,0 +1,529 @@
+package com.notenoughmail.examplemod.core.program;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.device.DeviceBus;
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.network.ChannelReader;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.compile.CompiledProgram;
+import com.notenoughmail.examplemod.core.program.compile.Operand;
+import com.notenoughmail.examplemod.core.program.compile.Optimizer;
+import com.notenoughmail.examplemod.core.program.compile.Profile;
+import com.notenoughmail.examplemod.core.program.compile.ProgramCache;
+import com.notenoughmail.examplemod.core.program.compile.ProgramCodec;
+import com.notenoughmail.examplemod.core.program.compile.ProgramCompiler;
+import com.notenoughmail.examplemod.core.program.compile.SourceEdit;
+import com.notenoughmail.examplemod.core.program.line.Line;
+import com.notenoughmail.examplemod.core.program.parse.Parser;
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The execution state of a program: its registers, current line, errors and console. The code itself is held in a
+ * shared, immutable {@link CompiledProgram}
+ */
+public class Program {
+
+    private static final double[] emptyRegisters = new double[]{
+            0D, 0D, 0D, 0D,
+            0D, 0D, 0D, 0D,
+            0D, 0D, 0D, 0D,
+            0D, 0D, 0D, 0D
+    };
+    public static final int DEFAULT_INSTRUCTION_BUDGET = 1000;
+
+    @Nullable
+    private CompiledProgram code;
+    /**
+     * The saved form of the code, decoded the first time the code is needed
+     */
+    @Nullable
+    private DataCompound encodedCode;
+    /**
+     * The code and execution state as last written or read, written again as they are for as long as they have not
+     * changed. Once written these are never modified, as the game may still be saving the tag they were written to
+     */
+    @Nullable
+    private DataCompound savedCode;
+    /**
+     * The unoptimized code {@link #savedCode} holds, or {@code null} if it has not been decoded yet
+     */
+    @Nullable
+    private CompiledProgram savedCodeOf;
+    @Nullable
+    private DataCompound savedState;
+    private final double[] savedRegisters = new double[16];
+    private int savedLine = 0;
+    private boolean savedYielded = false;
+    @Nullable
+    private Message savedError;
+    public final double[] registers;
+    public final DeviceBus ports = new DeviceBus();
+    public final ChannelReader channels = new ChannelReader();
+    public final WriteBuffer writes = new WriteBuffer();
+    public final String name;
+    @Nullable
+    private Message errorMessage;
+    private boolean hasError = false;
+    public final Console console = new Console();
+    private int currentLine = 0;
+    private boolean yielded = false;
+    private boolean optimize;
+    @Nullable
+    private Profile profile;
+    private boolean profiling = false;
+    private long instructions = 0;
+    /**
+     * Set by {@code slp} and {@code wai} for the scheduler, cleared at the start of every run
+     */
+    private int sleepTicks = 0;
+    private int awaitedOperand = Operand.NONE;
+    /**
+     * The program's entry in the registry it was added to
+     */
+    @Nullable
+    ProgramHandle handle;
+
+    public Program(String program, String name) {
+        this(program, name, true);
+    }
+
+    /**
+     * @param optimize If the program should run {@link Optimizer optimized} code
+     */
+    public Program(String program, String name, boolean optimize) {
+        this(ProgramCache.get(program, optimize), name);
+    }
+
+    public Program(CompiledProgram code, String name) {
+        this.code = code;
+        this.optimize = code.isOptimized();
+        this.registers = Arrays.copyOf(emptyRegisters, 16);
+        this.name = name;
+        if (code.error != null) {
+            sendError(code.error);
+        }
+    }
+
+    private Program(DataCompound tag) {
+        this.registers = Arrays.copyOf(emptyRegisters, 16);
+        this.name = tag.getString("name");
+        this.optimize = !tag.contains("optimize") || tag.getBoolean("optimize");
+        // Tags written before the compact format have no version
+        this.encodedCode = tag.contains("version") ? tag.getCompound("code") : tag;
+        if (tag.contains("version")) {
+            this.savedCode = encodedCode;
+        }
+        if (tag.contains("state")) {
+            readState(tag.getCompound("state"));
+        }
+    }
+
+    /**
+     * Reads a program written by {@link #write(DataCompound)}, along with its registers and where it stopped. Its
+     * code is only decoded once it is first needed
+     */
+    public static Program read(DataCompound tag) {
+        return new Program(tag);
+    }
+
+    public CompiledProgram getCode() {
+        if (code == null) {
+            if (encodedCode.contains("version")) {
+                code = ProgramCache.read(encodedCode, optimize);
+            } else {
+                final CompiledProgram legacy = readLegacyCode(encodedCode);
+                code = optimize ? Optimizer.optimize(legacy) : legacy;
+            }
+            encodedCode = null;
+            if (savedCode != null) {
+                savedCodeOf = code.unoptimized();
+            }
+            if (currentLine >= code.size()) {
+                // Saved by a version which optimized the code differently
+                restart(false);
+            }
+            if (code.error != null && !hasError) {
+                sendError(code.error);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * @return The source of the program, which {@link #edit(SourceEdit) edits} apply to. Code saved without its source
+     * is decompiled
+     */
+    public String getSource() {
+        return ProgramCompiler.withSource(getCode().unoptimized()).source.text();
+    }
+
+    public SymbolTable getAliases() {
+        return getCode().aliases;
+    }
+
+    public void run() {
+        run(DEFAULT_INSTRUCTION_BUDGET);
+    }
+
+    /**
+     * Runs the program until it reaches its end, yields, or has executed {@code budget} instructions. A program
+     * that did not reach its end resumes from where it stopped on the next call. {@code slp} and {@code wai} stop it
+     * like a yield, only the {@link com.notenoughmail.examplemod.core.engine.ProgramScheduler scheduler} holds it back
+     * until they are met
+     * <p>
+     * Port writes are collected in {@link #ports} and channel writes in {@link #writes}, both are cleared at the start
+     * of every run
+     */
+    public void run(int budget) {
+        final CompiledProgram code = getCode();
+        if (beginRun()) {
+            endRun(profiling ? profile.run(code, this, currentLine, budget) : code.run(this, currentLine, budget));
+        }
+    }
+
+    /**
+     * Prepares a run of the program's code by something other than {@link #run(int)}, such as the
+     * {@link com.notenoughmail.examplemod.core.program.compile.BatchInterpreter BatchInterpreter}, which should then
+     * start at {@link #getCurrentLine()} and report where it stopped through {@link #endRun(int)}
+     *
+     * @return If the program can be run
+     */
+    public boolean beginRun() {
+        ports.clearDirty();
+        writes.clear();
+        sleepTicks = 0;
+        awaitedOperand = Operand.NONE;
+        return !hasError;
+    }
+
+    /**
+     * @param next The index of the instruction to resume from, or {@link CompiledProgram#COMPLETED}
+     */
+    public void endRun(int next) {
+        yielded = next != CompiledProgram.COMPLETED;
+        currentLine = yielded ? next : 0;
+    }
+
+    /**
+     * @return The index of the instruction the next run starts at
+     */
+    public int getCurrentLine() {
+        return currentLine;
+    }
+
+    /**
+     * Applies an edit to the source of the program, see {@link ProgramCompiler#recompile(CompiledProgram, SourceEdit)}.
+     * Registers are kept, and a program which stopped before reaching its end resumes from the same instruction,
+     * unless it stopped within the edited lines or the edit changed an alias, in which case it starts over
+     */
+    public void edit(SourceEdit edit) {
+        final CompiledProgram previous = ProgramCompiler.withSource(getCode().unoptimized());
+        final CompiledProgram edited = ProgramCompiler.recompile(previous, edit);
+        code = optimize ? Optimizer.optimize(edited) : edited;
+        hasError = false;
+        errorMessage = null;
+        if (edited.error != null) {
+            sendError(edited.error);
+            restart(false);
+        } else if (yielded) {
+            final int first = previous.source.firstInstruction(edit.firstLine());
+            final int end = previous.source.firstInstruction(edit.endLine());
+            // The aliases are only shared when every line outside of the edit compiled to the same instructions
+            if (edited.aliases != previous.aliases || (currentLine > first && currentLine < end)) {
+                restart(true);
+            } else if (optimize) {
+                // Optimized instructions can not be related to the source, so start over, but keep the registers
+                restart(false);
+            } else if (currentLine >= end) {
+                currentLine += edited.size() - previous.size();
+            }
+        }
+    }
+
+    public boolean isOptimized() {
+        return optimize;
+    }
+
+    /**
+     * Switches between running {@link Optimizer optimized} and unoptimized code, so that their results can be compared.
+     * A program which had not reached its end starts over, as the instructions of the two do not line up
+     */
+    public void setOptimized(boolean optimize) {
+        if (this.optimize != optimize) {
+            this.optimize = optimize;
+            if (code != null) {
+                code = optimize ? Optimizer.optimize(code) : code.unoptimized();
+                restart(false);
+            }
+        }
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Starts profiling the program with a fresh {@link Profile}, or stops profiling while keeping the profile
+     * gathered so far. Profiled programs run noticeably slower
+     */
+    public void setProfiling(boolean profiling) {
+        if (profiling && !this.profiling) {
+            profile = new Profile(getCode());
+        }
+        this.profiling = profiling;
+    }
+
+    /**
+     * @return The number of instructions the program has executed since it was created or loaded
+     */
+    public long getInstructionCount() {
+        return instructions;
+    }
+
+    /**
+     * Called by the executors at the end of every run with the amount of budget spent
+     */
+    public void countInstructions(int count) {
+        instructions += count;
+    }
+
+    /**
+     * Called by {@code slp}. Values below one, including NaN, sleep for a single tick
+     */
+    public void sleep(double ticks) {
+        sleepTicks = ticks >= Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(1, (int) ticks);
+    }
+
+    /**
+     * Called by {@code wai} with the port or channel operand it waits on
+     */
+    public void await(int operand) {
+        awaitedOperand = operand;
+    }
+
+    /**
+     * @return The number of ticks the last run asked to sleep for, or 0 if it did not end in a {@code slp}
+     */
+    public int getSleepTicks() {
+        return sleepTicks;
+    }
+
+    /**
+     * @return The {@link Operand operand} of the port or channel the last run waits on, or {@link Operand#NONE} if
+     * it did not end in a {@code wai}
+     */
+    public int getAwaitedOperand() {
+        return awaitedOperand;
+    }
+
+    /**
+     * @return The program's entry in the registry it was added to, or {@code null} if it is not in one
+     */
+    @Nullable
+    public ProgramHandle getHandle() {
+        return handle;
+    }
+
+    /**
+     * @return The last profile gathered, or {@code null} if the program was never profiled
+     */
+    @Nullable
+    public Profile getProfile() {
+        return profile;
+    }
+
+    private void restart(boolean clearRegisters) {
+        if (clearRegisters) {
+            Arrays.fill(registers, 0D);
+        }
+        currentLine = 0;
+        yielded = false;
+    }
+
+    /**
+     * @return If the program stopped before reaching its end on its last run
+     */
+    public boolean isYielded() {
+        return yielded;
+    }
+
+    /**
+     * @return The line the label is on, or -1 if the label does not exist
+     */
+    public int getLabelLine(String label) {
+        return getCode().labels.getLabel(label);
+    }
+
+    public void sendError(Message error, int lineNumber) {
+        sendError(Message.of("message.examplemod.error_on_line", Line.getLineNumber(lineNumber), error));
+    }
+
+    public void sendError(Message error) {
+        this.hasError = true;
+        this.errorMessage = error;
+    }
+
+    @Nullable
+    public Message getError() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Program: ");
+        builder.append(name);
+        builder.append("\n");
+        builder.append("  |\n");
+        for (Line line : getCode().lines) {
+            line.appendToProgram(builder);
+        }
+        builder.append("  |");
+        return builder.toString();
+    }
+
+    /**
+     * Writes the program along with its execution state. The code and the state are each only written anew when they
+     * changed since the last write, otherwise what was written then is reused
+     */
+    public void write(DataCompound tag) {
+        tag.putString("name", name);
+        tag.putInt("version", ProgramCodec.VERSION);
+        tag.putBoolean("optimize", optimize);
+        if (savedCode != null && savedCode.getClass() == tag.getClass() && (code == null || code.unoptimized() == savedCodeOf)) {
+            tag.put("code", savedCode);
+        } else {
+            savedCodeOf = getCode().unoptimized();
+            savedCode = tag.putCompound("code");
+            ProgramCodec.write(savedCodeOf, savedCode);
+        }
+        if (savedState != null && savedState.getClass() == tag.getClass() && !stateChanged()) {
+            tag.put("state", savedState);
+        } else {
+            savedState = tag.putCompound("state");
+            writeState(savedState);
+        }
+    }
+
+    private boolean stateChanged() {
+        return currentLine != savedLine || yielded != savedYielded || errorMessage != savedError || !Arrays.equals(registers, savedRegisters);
+    }
+
+    /**
+     * Registers are written as their raw bits, so that every value, NaN included, reads back exactly
+     */
+    private void writeState(DataCompound tag) {
+        final long[] bits = new long[registers.length];
+        for (int i = 0 ; i < bits.length ; i++) {
+            bits[i] = Double.doubleToRawLongBits(registers[i]);
+        }
+        tag.putLongArray("registers", bits);
+        tag.putInt("line", currentLine);
+        tag.putBoolean("yielded", yielded);
+        if (hasError && errorMessage != null) {
+            errorMessage.write(tag.putCompound("error"));
+        }
+        rememberState();
+    }
+
+    private void readState(DataCompound tag) {
+        final long[] bits = tag.getLongArray("registers");
+        for (int i = 0 ; i < bits.length && i < registers.length ; i++) {
+            registers[i] = Double.longBitsToDouble(bits[i]);
+        }
+        currentLine = tag.getInt("line");
+        yielded = tag.getBoolean("yielded");
+        if (tag.contains("error")) {
+            sendError(Message.read(tag.getCompound("error")));
+        }
+        savedState = tag;
+        rememberState();
+    }
+
+    private void rememberState() {
+        System.arraycopy(registers, 0, savedRegisters, 0, registers.length);
+        savedLine = currentLine;
+        savedYielded = yielded;
+        savedError = errorMessage;
+    }
+
+    private static CompiledProgram readLegacyCode(DataCompound tag) {
+        final SymbolTable labels = SymbolTable.read(tag.getCompound("labels"), null);
+        final SymbolTable aliases = readAliases(tag.getCompound("aliases"));
+        return ProgramCompiler.compile(readLines(tag.getCompound("lines")), labels, aliases);
+    }
+
+    private static SymbolTable readAliases(DataCompound tag) {
+        final SymbolTable aliases = new SymbolTable(SymbolTable.BUILTINS, tag.size());
+        for (String alias : tag.keys()) {
+            final DataCompound entry = tag.getCompound(alias);
+            if (entry.contains("type")) {
+                // Written before aliases were stored in a symbol table
+                final Object value = readArgValue(entry);
+                if (value != null) {
+                    Parser.putAlias(aliases, alias, value);
+                }
+            } else {
+                aliases.put(alias, entry.getByte("kind"), entry.getLong("value"));
+            }
+        }
+        return aliases;
+    }
+
+    private static Line[] readLines(DataCompound tag) {
+        final int size = tag.getInt("size");
+        final Line[] lines = new Line[size];
+        final List<DataCompound> list = tag.getCompoundList("lines");
+        for (int i = 0 ; i < size ; i++) {
+            lines[i] = Line.read(list.get(i));
+        }
+        return lines;
+    }
+
+    public static Object readArgValue(DataCompound tag) {
+        final byte type = tag.getByte("type");
+        if (type == 0) {
+            return Operation.operations.get(tag.getString("value"));
+        } else if(type == 1) {
+            return DevicePort.ports.get(tag.getString("value"));
+        } else if(type == 2) {
+            return NetworkChannel.channels.get(tag.getString("value"));
+        } else if (type == 3) {
+            return tag.getDouble("value");
+        } else if (type == 4) {
+            return tag.getString("value");
+        } else if (type == 5) {
+            return Register.registers.get(tag.getString("value"));
+        }
+        return null; // Should not happen!
+    }
+
+    public static void writeArgValue(Object arg, DataCompound tag) {
+        byte type = -1;
+        if (arg instanceof Operation op) {
+            type = 0;
+            tag.putString("value", op.name());
+        } else if (arg instanceof DevicePort port) {
+            type = 1;
+            tag.putString("value", port.name());
+        } else if (arg instanceof NetworkChannel channel) {
+            type = 2;
+            tag.putString("value", channel.name());
+        } else if (arg instanceof Number number) {
+            type = 3;
+            tag.putDouble("value", number.doubleValue());
+        } else if (arg instanceof String str) {
+            type = 4;
+            tag.putString("value", str);
+        } else if (arg instanceof Register reg) {
+            type = 5;
+            tag.putString("value", reg.name());
+        }
+        tag.putByte("type", type);
+    }
+}
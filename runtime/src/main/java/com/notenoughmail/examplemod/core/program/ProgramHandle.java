@@ -0,0 +1,53 @@
+package com.notenoughmail.examplemod.core.program;
+
+/**
+ * A program's entry in a {@link ProgramRegistry}. The id is never reused by the registry, so a handle kept
+ * after its program was removed can be told apart from whatever was added since
+ */
+public final class ProgramHandle {
+
+    public final int id;
+    public final Program program;
+    public final ProgramShard shard;
+    private volatile boolean removed = false;
+    private volatile boolean asleep = false;
+    /**
+     * The index of the handle in its shard and the next program with the same name, only touched by the registry
+     */
+    int index;
+    ProgramHandle nextWithName;
+
+    ProgramHandle(int id, Program program, ProgramShard shard) {
+        this.id = id;
+        this.program = program;
+        this.shard = shard;
+    }
+
+    public String getName() {
+        return program.name;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return If the scheduler has taken the program out of the run set until it is woken
+     */
+    public boolean isAsleep() {
+        return asleep;
+    }
+
+    void setAsleep(boolean asleep) {
+        this.asleep = asleep;
+    }
+
+    void markRemoved() {
+        removed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramHandle[" + id + ", " + program.name + "]";
+    }
+}
@@ -0,0 +1,164 @@
+package com.notenoughmail.examplemod.core.program;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Every program known to the {@link com.notenoughmail.examplemod.core.engine.ProgramScheduler scheduler}, split into
+ * one {@link ProgramShard} per {@link IProgramManager}. Programs are looked up by id or name without searching, and
+ * shards are iterated from their snapshots without copying
+ * <p>
+ * Changes must be made on the main thread, lookups and snapshots may be read from any thread. Several programs may
+ * share a name, a lookup by name finds the one added first
+ */
+public class ProgramRegistry {
+
+    private static final ProgramShard[] EMPTY = new ProgramShard[0];
+
+    private final Map<Integer, ProgramHandle> byId = new ConcurrentHashMap<>();
+    private final Map<String, ProgramHandle> byName = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<ProgramShard> shards = List.of();
+    private int nextId = 0;
+
+    /**
+     * @return A new empty shard for the programs of the manager
+     */
+    public ProgramShard addShard(IProgramManager owner) {
+        final ProgramShard shard = new ProgramShard(owner);
+        final ProgramShard[] array = shards.toArray(new ProgramShard[shards.size() + 1]);
+        array[array.length - 1] = shard;
+        shards = Collections.unmodifiableList(Arrays.asList(array));
+        return shard;
+    }
+
+    /**
+     * Removes the shard along with all of its programs
+     */
+    public void removeShard(ProgramShard shard) {
+        if (shard.isRemoved()) {
+            return;
+        }
+        for (ProgramHandle handle : shard.getHandles()) {
+            remove(handle);
+        }
+        shard.markRemoved();
+        shards = Collections.unmodifiableList(Arrays.asList(shards.stream().filter(s -> s != shard).toArray(ProgramShard[]::new)));
+    }
+
+    /**
+     * Removes every shard and program
+     */
+    public void clear() {
+        for (ProgramShard shard : shards) {
+            removeShard(shard);
+        }
+    }
+
+    /**
+     * @return An immutable snapshot of the shards, in the order they were added
+     */
+    public List<ProgramShard> getShards() {
+        return shards;
+    }
+
+    public ProgramHandle add(ProgramShard shard, Program program) {
+        if (shard.isRemoved()) {
+            throw new IllegalStateException("Cannot add a program to a removed shard");
+        }
+        if (program.handle != null) {
+            throw new IllegalArgumentException("Program " + program.name + " is already registered");
+        }
+        final ProgramHandle handle = new ProgramHandle(nextId++, program, shard);
+        program.handle = handle;
+        shard.add(handle);
+        byId.put(handle.id, handle);
+        final ProgramHandle first = byName.putIfAbsent(program.name, handle);
+        if (first != null) {
+            ProgramHandle last = first;
+            while (last.nextWithName != null) {
+                last = last.nextWithName;
+            }
+            last.nextWithName = handle;
+        }
+        for (Listener listener : listeners) {
+            listener.onAdded(handle);
+        }
+        return handle;
+    }
+
+    public void remove(ProgramHandle handle) {
+        if (handle.isRemoved()) {
+            return;
+        }
+        handle.markRemoved();
+        handle.shard.remove(handle);
+        handle.program.handle = null;
+        byId.remove(handle.id);
+        final ProgramHandle first = byName.get(handle.getName());
+        if (first == handle) {
+            if (handle.nextWithName == null) {
+                byName.remove(handle.getName());
+            } else {
+                byName.put(handle.getName(), handle.nextWithName);
+            }
+        } else {
+            ProgramHandle previous = first;
+            while (previous.nextWithName != handle) {
+                previous = previous.nextWithName;
+            }
+            previous.nextWithName = handle.nextWithName;
+        }
+        for (Listener listener : listeners) {
+            listener.onRemoved(handle);
+        }
+    }
+
+    /**
+     * Takes the program out of, or puts it back into, its shard's {@link ProgramShard#getAwakeHandles() awake snapshot}.
+     * Does nothing for removed programs
+     */
+    public void setAsleep(ProgramHandle handle, boolean asleep) {
+        if (!handle.isRemoved()) {
+            handle.shard.setAsleep(handle, asleep);
+        }
+    }
+
+    @Nullable
+    public ProgramHandle get(int id) {
+        return byId.get(id);
+    }
+
+    @Nullable
+    public ProgramHandle find(String name) {
+        return byName.get(name);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Called on the main thread after a program is added or removed
+     */
+    public interface Listener {
+
+        default void onAdded(ProgramHandle handle) {}
+
+        default void onRemoved(ProgramHandle handle) {}
+    }
+}
@@ -0,0 +1,118 @@
+package com.notenoughmail.examplemod.core.program;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The programs of a single {@link IProgramManager}. Changes are made through the {@link ProgramRegistry} on the main
+ * thread, {@link #getHandles()} and {@link #getAwakeHandles()} give immutable snapshots which any thread may iterate
+ * while programs are added, removed, put to sleep or woken. A snapshot is only rebuilt the first time it is asked for
+ * after a change
+ * <p>
+ * Programs are kept in the order they were added. Removing a program only clears its slot, the slots are compacted
+ * when the snapshots are next rebuilt, which walks every program anyway
+ */
+public final class ProgramShard {
+
+    private static final ProgramHandle[] EMPTY = new ProgramHandle[0];
+
+    public final IProgramManager owner;
+    /**
+     * The shard's programs, with null in the slots of programs removed since the last rebuild
+     */
+    private final List<ProgramHandle> handles = new ArrayList<>();
+    private int holes = 0;
+    private volatile List<ProgramHandle> snapshot = List.of();
+    private volatile List<ProgramHandle> awakeSnapshot = List.of();
+    private boolean removed = false;
+
+    ProgramShard(IProgramManager owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return The shard's programs in the order they were added
+     */
+    public List<ProgramHandle> getHandles() {
+        final List<ProgramHandle> list = snapshot;
+        return list == null ? rebuild(false) : list;
+    }
+
+    /**
+     * @return The shard's programs which are not {@link ProgramHandle#isAsleep() asleep}, ordered the same way as {@link #getHandles()}
+     */
+    public List<ProgramHandle> getAwakeHandles() {
+        final List<ProgramHandle> list = awakeSnapshot;
+        return list == null ? rebuild(true) : list;
+    }
+
+    public synchronized int size() {
+        return handles.size() - holes;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    synchronized void add(ProgramHandle handle) {
+        handle.index = handles.size();
+        handles.add(handle);
+        snapshot = null;
+        awakeSnapshot = null;
+    }
+
+    synchronized void remove(ProgramHandle handle) {
+        handles.set(handle.index, null);
+        holes++;
+        snapshot = null;
+        awakeSnapshot = null;
+    }
+
+    synchronized void setAsleep(ProgramHandle handle, boolean asleep) {
+        if (handle.isAsleep() != asleep) {
+            handle.setAsleep(asleep);
+            awakeSnapshot = null;
+        }
+    }
+
+    void markRemoved() {
+        removed = true;
+    }
+
+    private synchronized List<ProgramHandle> rebuild(boolean awakeOnly) {
+        if (holes > 0) {
+            compact();
+        }
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(Arrays.asList(handles.toArray(EMPTY)));
+        }
+        if (awakeSnapshot == null) {
+            final List<ProgramHandle> awake = new ArrayList<>(handles.size());
+            for (ProgramHandle handle : handles) {
+                if (!handle.isAsleep()) {
+                    awake.add(handle);
+                }
+            }
+            awakeSnapshot = Collections.unmodifiableList(awake);
+        }
+        return awakeOnly ? awakeSnapshot : snapshot;
+    }
+
+    /**
+     * Closes the slots of removed programs, keeping the order of the rest
+     */
+    private void compact() {
+        int size = 0;
+        for (int i = 0 ; i < handles.size() ; i++) {
+            final ProgramHandle handle = handles.get(i);
+            if (handle != null) {
+                handle.index = size;
+                handles.set(size++, handle);
+            }
+        }
+        handles.subList(size, handles.size()).clear();
+        holes = 0;
+    }
+}
@@ -11,6 +11,8 @@ public enum Register {
 
     public static final Map<String, Register> registers = new HashMap<>(16);
 
+    public static final Register[] VALUES = values();
+
     static {
         for (Register reg : values()) {
             registers.put(reg.name(), reg);
@@ -0,0 +1,55 @@
+package com.notenoughmail.examplemod.core.program;
+
+import com.notenoughmail.examplemod.core.device.IDeviceManager;
+import com.notenoughmail.examplemod.core.network.ChannelNetwork;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+
+import java.util.Arrays;
+
+/**
+ * Records the {@link NetworkChannel} writes a {@link Program} made while running, in the order they were made, so
+ * that they can be applied to the world from the main thread. Port writes go through the program's
+ * {@link com.notenoughmail.examplemod.core.device.DeviceBus DeviceBus} instead
+ */
+public class WriteBuffer {
+
+    private int[] channels = new int[8];
+    private double[] values = new double[8];
+    private int size = 0;
+
+    public void channel(int channel, double value) {
+        if (size == channels.length) {
+            channels = Arrays.copyOf(channels, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        channels[size] = channel;
+        values[size] = value;
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Applies the recorded writes to the given manager in the order they were made
+     */
+    public void commit(Program program, IDeviceManager manager) {
+        for (int i = 0 ; i < size ; i++) {
+            manager.writeChannel(program, NetworkChannel.VALUES[channels[i]], values[i]);
+        }
+    }
+
+    /**
+     * Offers the recorded writes to the network in the order they were made
+     */
+    public void publish(ChannelNetwork network) {
+        for (int i = 0 ; i < size ; i++) {
+            network.offer(channels[i], values[i]);
+        }
+    }
+}
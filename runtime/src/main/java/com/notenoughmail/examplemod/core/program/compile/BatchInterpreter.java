@@ -0,0 +1,467 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.Register;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Executes many {@link Program programs} which share the same {@link CompiledProgram} in lockstep, every
+ * instruction is executed once for a whole group of programs rather than once per program
+ * <p>
+ * The registers of the programs are laid out as one lane per program in a {@code double[]} per register, so
+ * that every operation is a simple loop over a contiguous range of lanes which the JVM can vectorize. When a
+ * branch is taken by only some of the programs in a group the lanes are reordered so that each side of the
+ * branch is again a contiguous range, which then continues as a group of its own
+ * <p>
+ * The results are the same as running each program on its own through the {@link Interpreter} with the same budget
+ */
+public final class BatchInterpreter {
+
+    private final CompiledProgram compiled;
+    private final Program[] programs;
+    private final int lanes;
+    private final double[][] registers;
+    private final int[] resume;
+    /**
+     * The budget each lane had left when it stopped
+     */
+    private final int[] remaining;
+    private final double[] scratchB;
+    private final double[] scratchC;
+    private final double[] scratchResult;
+    private final boolean[] taken;
+    private final ArrayDeque<Group> groups = new ArrayDeque<>();
+
+    private BatchInterpreter(CompiledProgram compiled, Program[] programs) {
+        this.compiled = compiled;
+        this.programs = programs;
+        this.lanes = programs.length;
+        this.registers = new double[Register.VALUES.length][lanes];
+        this.resume = new int[lanes];
+        this.remaining = new int[lanes];
+        this.scratchB = new double[lanes];
+        this.scratchC = new double[lanes];
+        this.scratchResult = new double[lanes];
+        this.taken = new boolean[lanes];
+    }
+
+    /**
+     * Runs every program, all of which must have the given code, with the given instruction budget each
+     */
+    public static void run(CompiledProgram compiled, Program[] programs, int budget) {
+        int runnable = 0;
+        final Program[] lanes = new Program[programs.length];
+        for (Program program : programs) {
+            if (program.beginRun()) {
+                lanes[runnable++] = program;
+            }
+        }
+        if (runnable > 0) {
+            final Program[] sorted = Arrays.copyOf(lanes, runnable);
+            // Programs resuming from the same instruction start out in the same group
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.getCurrentLine(), b.getCurrentLine()));
+            new BatchInterpreter(compiled, sorted).run(budget);
+        }
+    }
+
+    private void run(int budget) {
+        for (int lane = 0 ; lane < lanes ; lane++) {
+            final double[] values = programs[lane].registers;
+            for (int reg = 0 ; reg < registers.length ; reg++) {
+                registers[reg][lane] = values[reg];
+            }
+        }
+        int from = 0;
+        for (int lane = 1 ; lane <= lanes ; lane++) {
+            if (lane == lanes || programs[lane].getCurrentLine() != programs[from].getCurrentLine()) {
+                groups.add(new Group(from, lane, programs[from].getCurrentLine(), budget));
+                from = lane;
+            }
+        }
+        Group group;
+        while ((group = groups.poll()) != null) {
+            execute(group.from, group.to, group.start, group.budget);
+        }
+        for (int lane = 0 ; lane < lanes ; lane++) {
+            final double[] values = programs[lane].registers;
+            for (int reg = 0 ; reg < registers.length ; reg++) {
+                values[reg] = registers[reg][lane];
+            }
+            programs[lane].countInstructions(budget - remaining[lane]);
+            programs[lane].endRun(resume[lane]);
+        }
+    }
+
+    private void execute(int from, int to, int start, int budget) {
+        final int[] code = compiled.code;
+        final int size = compiled.size();
+        for (int i = start ; i < size ; i++) {
+            if (budget-- <= 0) {
+                finish(from, to, i, 0);
+                return;
+            }
+            final int pc = i * CompiledProgram.STRIDE;
+            final int a = code[pc + 1];
+            final int b = code[pc + 2];
+            final int c = code[pc + 3];
+            final Operation op = Operation.VALUES[code[pc]];
+            switch (op) {
+                case nil -> {
+                    for (int lane = from ; lane < to ; lane++) {
+                        Interpreter.nil(programs[lane]);
+                    }
+                    finish(from, to, CompiledProgram.COMPLETED, budget);
+                    return;
+                }
+                case label -> {}
+                case con -> {
+                    final int count = b == Operand.NONE ? 1 : c == Operand.NONE ? 2 : 3;
+                    final double[] first = read(a, scratchResult, from, to);
+                    final double[] second = read(b, scratchB, from, to);
+                    final double[] third = read(c, scratchC, from, to);
+                    for (int lane = from ; lane < to ; lane++) {
+                        Interpreter.con(programs[lane], count, first[lane], second[lane], third[lane]);
+                    }
+                }
+                case prt -> {
+                    final String text = compiled.strings[Operand.index(a)];
+                    for (int lane = from ; lane < to ; lane++) {
+                        Interpreter.prt(programs[lane], text);
+                    }
+                }
+                case jmp -> i = Operand.index(a) - 1;
+                case yld -> {
+                    finish(from, to, i + 1 < size ? i + 1 : CompiledProgram.COMPLETED, budget);
+                    return;
+                }
+                case slp -> {
+                    final double[] ticks = read(a, scratchResult, from, to);
+                    for (int lane = from ; lane < to ; lane++) {
+                        Interpreter.sleep(programs[lane], ticks[lane]);
+                    }
+                    finish(from, to, i + 1 < size ? i + 1 : CompiledProgram.COMPLETED, budget);
+                    return;
+                }
+                case wai -> {
+                    for (int lane = from ; lane < to ; lane++) {
+                        Interpreter.await(programs[lane], a);
+                    }
+                    finish(from, to, i + 1 < size ? i + 1 : CompiledProgram.COMPLETED, budget);
+                    return;
+                }
+                case bez, bnz, blt, bgt -> {
+                    final int count = branch(op, read(b, scratchB, from, to), read(c, scratchC, from, to), from, to);
+                    if (count == to - from) {
+                        i = Operand.index(a) - 1;
+                    } else if (count > 0) {
+                        // Diverged, the taken lanes are moved to the front and continue as a new group
+                        final int middle = partition(from, to);
+                        groups.add(new Group(from, middle, Operand.index(a), budget));
+                        from = middle;
+                    }
+                }
+                default -> {
+                    final double[] result = Operand.kind(a) == Operand.REGISTER ? registers[Operand.index(a)] : scratchResult;
+                    compute(op, result, read(b, scratchB, from, to), read(c, scratchC, from, to), from, to);
+                    if (result == scratchResult) {
+                        writeExternal(a, from, to);
+                    }
+                }
+            }
+        }
+        finish(from, to, CompiledProgram.COMPLETED, budget);
+    }
+
+    private void finish(int from, int to, int next, int budget) {
+        Arrays.fill(resume, from, to, next);
+        Arrays.fill(remaining, from, to, budget);
+    }
+
+    /**
+     * @return The values of the operand for each lane, either the lanes of a register or the scratch array filled with the value
+     */
+    private double[] read(int operand, double[] scratch, int from, int to) {
+        if (operand != Operand.NONE) {
+            switch (Operand.kind(operand)) {
+                case Operand.REGISTER -> {
+                    return registers[Operand.index(operand)];
+                }
+                case Operand.CONSTANT -> {
+                    Arrays.fill(scratch, from, to, compiled.constants[Operand.index(operand)]);
+                    return scratch;
+                }
+                case Operand.PORT -> {
+                    final int index = Operand.index(operand);
+                    for (int lane = from ; lane < to ; lane++) {
+                        scratch[lane] = programs[lane].ports.values[index];
+                    }
+                    return scratch;
+                }
+                case Operand.CHANNEL -> {
+                    final int index = Operand.index(operand);
+                    for (int lane = from ; lane < to ; lane++) {
+                        scratch[lane] = programs[lane].channels.read(index);
+                    }
+                    return scratch;
+                }
+            }
+        }
+        Arrays.fill(scratch, from, to, 0D);
+        return scratch;
+    }
+
+    private void writeExternal(int operand, int from, int to) {
+        final int index = Operand.index(operand);
+        switch (Operand.kind(operand)) {
+            case Operand.PORT -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    programs[lane].ports.write(index, scratchResult[lane]);
+                }
+            }
+            case Operand.CHANNEL -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    programs[lane].writes.channel(index, scratchResult[lane]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the condition of a branch for every lane
+     *
+     * @return The number of lanes which take the branch
+     */
+    private int branch(Operation op, double[] b, double[] c, int from, int to) {
+        switch (op) {
+            case bez -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    taken[lane] = b[lane] == 0;
+                }
+            }
+            case bnz -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    taken[lane] = b[lane] != 0;
+                }
+            }
+            case blt -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    taken[lane] = b[lane] < c[lane];
+                }
+            }
+            case bgt -> {
+                for (int lane = from ; lane < to ; lane++) {
+                    taken[lane] = b[lane] > c[lane];
+                }
+            }
+        }
+        int count = 0;
+        for (int lane = from ; lane < to ; lane++) {
+            if (taken[lane]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reorders the lanes so that the ones which took the branch come first
+     *
+     * @return The first lane which did not take the branch
+     */
+    private int partition(int from, int to) {
+        int low = from;
+        int high = to - 1;
+        while (true) {
+            while (low <= high && taken[low]) {
+                low++;
+            }
+            while (low <= high && !taken[high]) {
+                high--;
+            }
+            if (low >= high) {
+                return low;
+            }
+            swap(low, high);
+            low++;
+            high--;
+        }
+    }
+
+    private void swap(int first, int second) {
+        final Program program = programs[first];
+        programs[first] = programs[second];
+        programs[second] = program;
+        final boolean wasTaken = taken[first];
+        taken[first] = taken[second];
+        taken[second] = wasTaken;
+        for (double[] register : registers) {
+            final double value = register[first];
+            register[first] = register[second];
+            register[second] = value;
+        }
+    }
+
+    /**
+     * Applies a pure operation to every lane, the same way the {@link Interpreter} does
+     */
+    private static void compute(Operation op, double[] d, double[] b, double[] c, int from, int to) {
+        switch (op) {
+            case add -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] + c[i];
+                }
+            }
+            case sub -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] - c[i];
+                }
+            }
+            case mul -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] * c[i];
+                }
+            }
+            case div -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] / c[i];
+                }
+            }
+            case pow -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.pow(b[i], c[i]);
+                }
+            }
+            case set -> {
+                if (d != b) {
+                    System.arraycopy(b, from, d, from, to - from);
+                }
+            }
+            case eql -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] == c[i] ? 1D : 0D;
+                }
+            }
+            case eqz -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] == 0 ? 1D : 0D;
+                }
+            }
+            case ltz -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] < 0 ? 1D : 0D;
+                }
+            }
+            case gtz -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] > 0 ? 1D : 0D;
+                }
+            }
+            case mod -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = b[i] % c[i];
+                }
+            }
+            case and -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = (long) b[i] & (long) c[i];
+                }
+            }
+            case xor -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = (long) b[i] ^ (long) c[i];
+                }
+            }
+            case not -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = ~ (long) b[i];
+                }
+            }
+            case bsl -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = (long) b[i] << (int) c[i];
+                }
+            }
+            case bsr -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = (long) b[i] >> (int) c[i];
+                }
+            }
+            case or -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = (long) b[i] | (long) c[i];
+                }
+            }
+            case abs -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.abs(b[i]);
+                }
+            }
+            case flr -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.floor(b[i]);
+                }
+            }
+            case cel -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.ceil(b[i]);
+                }
+            }
+            case log -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.log10(b[i]);
+                }
+            }
+            case max -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.max(b[i], c[i]);
+                }
+            }
+            case min -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.min(b[i], c[i]);
+                }
+            }
+            case ln -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.log(b[i]);
+                }
+            }
+            case sin -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.sin(b[i]);
+                }
+            }
+            case cos -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.cos(b[i]);
+                }
+            }
+            case tan -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.tan(b[i]);
+                }
+            }
+            case cbr -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.cbrt(b[i]);
+                }
+            }
+            case sqr -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = Math.sqrt(b[i]);
+                }
+            }
+            case neg -> {
+                for (int i = from ; i < to ; i++) {
+                    d[i] = -b[i];
+                }
+            }
+            default -> throw new IllegalArgumentException("Operation " + op + " is not pure");
+        }
+    }
+
+    private record Group(int from, int to, int start, int budget) {}
+}
@@ -0,0 +1,148 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.program.Console;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.line.Line;
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The code of a program, kept apart from its execution state so that every {@link Program} running the same
+ * source can share one instance, see {@link ProgramCache}. Compiled programs are never modified once created
+ * <p>
+ * The lines are flattened for execution, every instruction takes up {@link #STRIDE} ints in {@link #code}:
+ * the ordinal of its {@link com.notenoughmail.examplemod.core.program.Operation Operation} followed by up to
+ * three {@link Operand operands}, unused operands are {@link Operand#NONE}. Jumps and branches hold the index of the
+ * instruction execution continues at as their first operand, which for unoptimized programs is the label itself
+ * <p>
+ * {@link Optimizer Optimized} programs share the lines, labels and source of the program they were optimized from,
+ * so their lines no longer line up with their instructions
+ * <p>
+ * Programs start out {@link Interpreter interpreted}, once they have been run {@link #JIT_THRESHOLD} times they
+ * are handed to the {@link JitCompiler}, this count is shared by all programs running the code. Editing a program
+ * creates a new compiled program, discarding any generated code. Should the generated code ever throw, the run is
+ * undone and the code stays interpreted from then on
+ */
+public final class CompiledProgram {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledProgram.class);
+
+    public static final int STRIDE = 4;
+    public static final int JIT_THRESHOLD = 200;
+    /**
+     * Returned from {@link #run(Program, int, int)} when the program has reached its end
+     */
+    public static final int COMPLETED = -1;
+
+    public final Line[] lines;
+    public final SymbolTable labels;
+    public final SymbolTable aliases;
+    public final int[] code;
+    public final double[] constants;
+    public final String[] strings;
+    /**
+     * The line number each instruction was compiled from, used for error reporting
+     */
+    public final int[] lineNumbers;
+    /**
+     * The first error encountered while compiling, programs with errors can not be run
+     */
+    @Nullable
+    public final Message error;
+    /**
+     * Where each instruction came from in the source, only present for programs compiled from source or read along
+     * with their source
+     */
+    @Nullable
+    public final SourceMap source;
+
+    private int executions = 0;
+    private volatile boolean jitFailed = false;
+    @Nullable
+    private volatile JitCode jitCode;
+
+    /**
+     * The program this one was {@link Optimizer optimized} from, null if it is not optimized
+     */
+    @Nullable
+    private final CompiledProgram unoptimized;
+
+    CompiledProgram(Line[] lines, SymbolTable labels, SymbolTable aliases, int[] code, double[] constants, String[] strings, int[] lineNumbers, @Nullable Message error, @Nullable SourceMap source) {
+        this(lines, labels, aliases, code, constants, strings, lineNumbers, error, source, null);
+    }
+
+    /**
+     * Creates an optimized version of a program, which shares the lines, labels and source of the original
+     */
+    CompiledProgram(CompiledProgram unoptimized, int[] code, double[] constants, int[] lineNumbers) {
+        this(unoptimized.lines, unoptimized.labels, unoptimized.aliases, code, constants, unoptimized.strings, lineNumbers, unoptimized.error, unoptimized.source, unoptimized);
+    }
+
+    private CompiledProgram(Line[] lines, SymbolTable labels, SymbolTable aliases, int[] code, double[] constants, String[] strings, int[] lineNumbers, @Nullable Message error, @Nullable SourceMap source, @Nullable CompiledProgram unoptimized) {
+        this.lines = lines;
+        this.labels = labels;
+        this.aliases = aliases;
+        this.code = code;
+        this.constants = constants;
+        this.strings = strings;
+        this.lineNumbers = lineNumbers;
+        this.error = error;
+        this.source = source;
+        this.unoptimized = unoptimized;
+    }
+
+    public int size() {
+        return lineNumbers.length;
+    }
+
+    public boolean isOptimized() {
+        return unoptimized != null;
+    }
+
+    /**
+     * @return The program this one was optimized from, or this program if it is not optimized
+     */
+    public CompiledProgram unoptimized() {
+        return unoptimized != null ? unoptimized : this;
+    }
+
+    /**
+     * @param start  The index of the instruction to begin execution at
+     * @param budget The maximum number of instructions to execute, the generated code may overshoot this by at most the length of the program
+     * @return The index of the instruction the program should resume from, or {@link #COMPLETED}
+     */
+    public int run(Program program, int start, int budget) {
+        final JitCode jit = jitCode;
+        if (jit != null) {
+            final Console console = program.console;
+            final long printed = console.getWritten();
+            final int repeats = printed > console.getStart() ? console.getRepeats(printed - 1) : 0;
+            try {
+                return jit.run(program, program.registers, start, budget);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Generated code for program {} failed, it will be interpreted from now on", program.name, e);
+                jitCode = null;
+                jitFailed = true;
+                // Registers are only written back when the generated code returns, everything else the run did is
+                // undone so that it is not done twice when the run is repeated by the interpreter on the next call
+                console.truncate(printed, repeats);
+                program.beginRun();
+                return start;
+            }
+        } else if (!jitFailed && ++executions >= JIT_THRESHOLD) {
+            tierUp(program);
+        }
+        return Interpreter.run(this, program, start, budget);
+    }
+
+    private synchronized void tierUp(Program program) {
+        if (jitCode == null && !jitFailed) {
+            final JitCode jit = JitCompiler.compile(this, program);
+            jitFailed = jit == null;
+            jitCode = jit;
+        }
+    }
+}
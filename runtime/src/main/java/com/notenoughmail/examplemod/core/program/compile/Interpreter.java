@@ -0,0 +1,166 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Program;
+
+/**
+ * Executes a {@link CompiledProgram} against the registers of a {@link Program}
+ */
+public final class Interpreter {
+
+    private Interpreter() {}
+
+    /**
+     * @param start  The index of the instruction to begin execution at
+     * @param budget The maximum number of instructions to execute
+     * @return The index of the instruction the program should resume from, or {@link CompiledProgram#COMPLETED}
+     */
+    public static int run(CompiledProgram compiled, Program program, int start, int budget) {
+        final int[] code = compiled.code;
+        final double[] constants = compiled.constants;
+        final double[] registers = program.registers;
+        final double[] ports = program.ports.values;
+        final int size = compiled.size();
+        final int limit = budget;
+        for (int i = start ; i < size ; i++) {
+            if (budget-- <= 0) {
+                program.countInstructions(limit);
+                return i;
+            }
+            final int pc = i * CompiledProgram.STRIDE;
+            final int a = code[pc + 1];
+            final int b = code[pc + 2];
+            final int c = code[pc + 3];
+            switch (Operation.VALUES[code[pc]]) {
+                case nil -> {
+                    nil(program);
+                    program.countInstructions(limit - budget);
+                    return CompiledProgram.COMPLETED;
+                }
+                case label -> {}
+                case add -> write(a, read(b, registers, constants, ports, program) + read(c, registers, constants, ports, program), registers, program);
+                case sub -> write(a, read(b, registers, constants, ports, program) - read(c, registers, constants, ports, program), registers, program);
+                case mul -> write(a, read(b, registers, constants, ports, program) * read(c, registers, constants, ports, program), registers, program);
+                case div -> write(a, read(b, registers, constants, ports, program) / read(c, registers, constants, ports, program), registers, program);
+                case pow -> write(a, Math.pow(read(b, registers, constants, ports, program), read(c, registers, constants, ports, program)), registers, program);
+                case set -> write(a, read(b, registers, constants, ports, program), registers, program);
+                case eql -> write(a, read(b, registers, constants, ports, program) == read(c, registers, constants, ports, program) ? 1D : 0D, registers, program);
+                case eqz -> write(a, read(b, registers, constants, ports, program) == 0 ? 1D : 0D, registers, program);
+                case ltz -> write(a, read(b, registers, constants, ports, program) < 0 ? 1D : 0D, registers, program);
+                case gtz -> write(a, read(b, registers, constants, ports, program) > 0 ? 1D : 0D, registers, program);
+                case mod -> write(a, read(b, registers, constants, ports, program) % read(c, registers, constants, ports, program), registers, program);
+                case and -> write(a, (long) read(b, registers, constants, ports, program) & (long) read(c, registers, constants, ports, program), registers, program);
+                case xor -> write(a, (long) read(b, registers, constants, ports, program) ^ (long) read(c, registers, constants, ports, program), registers, program);
+                case not -> write(a, ~ (long) read(b, registers, constants, ports, program), registers, program);
+                case bsl -> write(a, (long) read(b, registers, constants, ports, program) << (int) read(c, registers, constants, ports, program), registers, program);
+                case bsr -> write(a, (long) read(b, registers, constants, ports, program) >> (int) read(c, registers, constants, ports, program), registers, program);
+                case or -> write(a, (long) read(b, registers, constants, ports, program) | (long) read(c, registers, constants, ports, program), registers, program);
+                case con -> con(program, b == Operand.NONE ? 1 : c == Operand.NONE ? 2 : 3, read(a, registers, constants, ports, program), read(b, registers, constants, ports, program), read(c, registers, constants, ports, program));
+                case abs -> write(a, Math.abs(read(b, registers, constants, ports, program)), registers, program);
+                case flr -> write(a, Math.floor(read(b, registers, constants, ports, program)), registers, program);
+                case cel -> write(a, Math.ceil(read(b, registers, constants, ports, program)), registers, program);
+                case log -> write(a, Math.log10(read(b, registers, constants, ports, program)), registers, program);
+                case max -> write(a, Math.max(read(b, registers, constants, ports, program), read(c, registers, constants, ports, program)), registers, program);
+                case min -> write(a, Math.min(read(b, registers, constants, ports, program), read(c, registers, constants, ports, program)), registers, program);
+                case ln -> write(a, Math.log(read(b, registers, constants, ports, program)), registers, program);
+                case sin -> write(a, Math.sin(read(b, registers, constants, ports, program)), registers, program);
+                case cos -> write(a, Math.cos(read(b, registers, constants, ports, program)), registers, program);
+                case tan -> write(a, Math.tan(read(b, registers, constants, ports, program)), registers, program);
+                case cbr -> write(a, Math.cbrt(read(b, registers, constants, ports, program)), registers, program);
+                case sqr -> write(a, Math.sqrt(read(b, registers, constants, ports, program)), registers, program);
+                case neg -> write(a, -read(b, registers, constants, ports, program), registers, program);
+                case jmp -> i = Operand.index(a) - 1;
+                case prt -> prt(program, compiled.strings[Operand.index(a)]);
+                case yld -> {
+                    program.countInstructions(limit - budget);
+                    return i + 1 < size ? i + 1 : CompiledProgram.COMPLETED;
+                }
+                case slp -> {
+                    sleep(program, read(a, registers, constants, ports, program));
+                    program.countInstructions(limit - budget);
+                    return i + 1 < size ? i + 1 : CompiledProgram.COMPLETED;
+                }
+                case wai -> {
+                    await(program, a);
+                    program.countInstructions(limit - budget);
+                    return i + 1 < size ? i + 1 : CompiledProgram.COMPLETED;
+                }
+                case bez -> {
+                    if (read(b, registers, constants, ports, program) == 0) {
+                        i = Operand.index(a) - 1;
+                    }
+                }
+                case bnz -> {
+                    if (read(b, registers, constants, ports, program) != 0) {
+                        i = Operand.index(a) - 1;
+                    }
+                }
+                case blt -> {
+                    if (read(b, registers, constants, ports, program) < read(c, registers, constants, ports, program)) {
+                        i = Operand.index(a) - 1;
+                    }
+                }
+                case bgt -> {
+                    if (read(b, registers, constants, ports, program) > read(c, registers, constants, ports, program)) {
+                        i = Operand.index(a) - 1;
+                    }
+                }
+            }
+        }
+        program.countInstructions(limit - budget);
+        return CompiledProgram.COMPLETED;
+    }
+
+    private static double read(int operand, double[] registers, double[] constants, double[] ports, Program program) {
+        return switch (Operand.kind(operand)) {
+            case Operand.REGISTER -> registers[Operand.index(operand)];
+            case Operand.CONSTANT -> constants[Operand.index(operand)];
+            case Operand.PORT -> ports[Operand.index(operand)];
+            case Operand.CHANNEL -> program.channels.read(Operand.index(operand));
+            default -> 0D;
+        };
+    }
+
+    private static void write(int operand, double value, double[] registers, Program program) {
+        switch (Operand.kind(operand)) {
+            case Operand.REGISTER -> registers[Operand.index(operand)] = value;
+            case Operand.PORT -> program.ports.write(Operand.index(operand), value);
+            case Operand.CHANNEL -> program.writes.channel(Operand.index(operand), value);
+        }
+    }
+
+    // Shared with the classes generated by JitCompiler
+
+    static void nil(Program program) {
+        program.sendError(Message.of("message.examplemod.nil_called"));
+    }
+
+    static void con(Program program, int count, double a, double b, double c) {
+        program.console.values(count, a, b, c);
+    }
+
+    static void prt(Program program, String text) {
+        program.console.text(text);
+    }
+
+    static void sleep(Program program, double ticks) {
+        program.sleep(ticks);
+    }
+
+    static void await(Program program, int operand) {
+        program.await(operand);
+    }
+
+    static void writePort(double value, Program program, int port) {
+        program.ports.write(port, value);
+    }
+
+    static double readChannel(Program program, int channel) {
+        return program.channels.read(channel);
+    }
+
+    static void writeChannel(double value, Program program, int channel) {
+        program.writes.channel(channel, value);
+    }
+}
@@ -0,0 +1,11 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.program.Program;
+
+/**
+ * Implemented by the hidden classes generated by {@link JitCompiler}, has the same contract as {@link Interpreter#run(CompiledProgram, Program, int, int)}
+ */
+public interface JitCode {
+
+    int run(Program program, double[] registers, int start, int budget);
+}
@@ -0,0 +1,427 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.device.DeviceBus;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates a {@link JitCode} hidden class for a {@link CompiledProgram}. The program's registers are
+ * loaded into locals on entry and written back on exit, jumps become direct branches, and every
+ * {@link Operation} is mapped to the equivalent JVM arithmetic so that the JIT of the JVM itself
+ * can optimize the program. The instruction budget is only checked before jumps, so a tick may overshoot
+ * it by at most the length of the program
+ * <p>
+ * The generated classes are not strongly linked to their defining loader, so they are unloaded once the
+ * {@link CompiledProgram} owning them is no longer reachable
+ */
+public final class JitCompiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JitCompiler.class);
+
+    /**
+     * Programs larger than this would generate methods too big for the JVM to compile, they are left to the interpreter
+     */
+    public static final int MAX_INSTRUCTIONS = 512;
+
+    private static final String CLASS_NAME = Type.getInternalName(JitCode.class) + "Impl";
+    private static final String PROGRAM = Type.getInternalName(Program.class);
+    private static final String DEVICE_BUS = Type.getInternalName(DeviceBus.class);
+    private static final String INTERPRETER = Type.getInternalName(Interpreter.class);
+    private static final String MATH = "java/lang/Math";
+
+    private static final int PROGRAM_SLOT = 1;
+    private static final int REGISTERS_SLOT = 2;
+    private static final int START_SLOT = 3;
+    private static final int BUDGET_SLOT = 4;
+    private static final int RESUME_SLOT = 5;
+    private static final int FIRST_REGISTER_SLOT = 6;
+    private static final int LIMIT_SLOT = FIRST_REGISTER_SLOT + 32;
+
+    private final CompiledProgram compiled;
+    private final MethodVisitor mv;
+    private final Label[] lines;
+    private final Label completed = new Label();
+    private final Label exit = new Label();
+
+    private JitCompiler(CompiledProgram compiled, MethodVisitor mv) {
+        this.compiled = compiled;
+        this.mv = mv;
+        this.lines = new Label[compiled.size()];
+        for (int i = 0 ; i < lines.length ; i++) {
+            lines[i] = new Label();
+        }
+    }
+
+    /**
+     * @return The generated code, or null if the program could not be compiled
+     */
+    @Nullable
+    public static JitCode compile(CompiledProgram compiled, Program program) {
+        if (compiled.size() > MAX_INSTRUCTIONS) {
+            return null;
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(generate(compiled), true);
+            return (JitCode) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable t) {
+            LOGGER.warn("Could not compile program {}, it will remain interpreted", program.name, t);
+            return null;
+        }
+    }
+
+    private static byte[] generate(CompiledProgram compiled) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        cw.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, "java/lang/Object", new String[]{Type.getInternalName(JitCode.class)});
+
+        final MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        final MethodVisitor run = cw.visitMethod(ACC_PUBLIC, "run", "(L" + PROGRAM + ";[DII)I", null, null);
+        run.visitCode();
+        new JitCompiler(compiled, run).emitBody();
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void emitBody() {
+        mv.visitVarInsn(ILOAD, BUDGET_SLOT);
+        mv.visitVarInsn(ISTORE, LIMIT_SLOT);
+        final boolean[] used = usedRegisters();
+        for (int reg = 0 ; reg < used.length ; reg++) {
+            if (used[reg]) {
+                mv.visitVarInsn(ALOAD, REGISTERS_SLOT);
+                pushInt(reg);
+                mv.visitInsn(DALOAD);
+                mv.visitVarInsn(DSTORE, registerSlot(reg));
+            }
+        }
+        if (lines.length > 0) {
+            mv.visitVarInsn(ILOAD, START_SLOT);
+            mv.visitTableSwitchInsn(0, lines.length - 1, completed, lines);
+        }
+        for (int i = 0 ; i < lines.length ; i++) {
+            mv.visitLabel(lines[i]);
+            emitInstruction(i);
+        }
+        mv.visitLabel(completed);
+        pushInt(CompiledProgram.COMPLETED);
+        mv.visitVarInsn(ISTORE, RESUME_SLOT);
+        mv.visitLabel(exit);
+        for (int reg = 0 ; reg < used.length ; reg++) {
+            if (used[reg]) {
+                mv.visitVarInsn(ALOAD, REGISTERS_SLOT);
+                pushInt(reg);
+                mv.visitVarInsn(DLOAD, registerSlot(reg));
+                mv.visitInsn(DASTORE);
+            }
+        }
+        mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+        mv.visitVarInsn(ILOAD, LIMIT_SLOT);
+        mv.visitVarInsn(ILOAD, BUDGET_SLOT);
+        mv.visitInsn(ISUB);
+        mv.visitMethodInsn(INVOKEVIRTUAL, PROGRAM, "countInstructions", "(I)V", false);
+        mv.visitVarInsn(ILOAD, RESUME_SLOT);
+        mv.visitInsn(IRETURN);
+    }
+
+    private boolean[] usedRegisters() {
+        final boolean[] used = new boolean[16];
+        final int[] code = compiled.code;
+        for (int i = 0 ; i < code.length ; i += CompiledProgram.STRIDE) {
+            for (int operand = 1 ; operand < CompiledProgram.STRIDE ; operand++) {
+                if (code[i + operand] != Operand.NONE && Operand.kind(code[i + operand]) == Operand.REGISTER) {
+                    used[Operand.index(code[i + operand])] = true;
+                }
+            }
+        }
+        return used;
+    }
+
+    private void emitInstruction(int i) {
+        final int pc = i * CompiledProgram.STRIDE;
+        final int a = compiled.code[pc + 1];
+        final int b = compiled.code[pc + 2];
+        final int c = compiled.code[pc + 3];
+        final Operation op = Operation.VALUES[compiled.code[pc]];
+        if (op.jumps()) {
+            final Label hasBudget = new Label();
+            mv.visitVarInsn(ILOAD, BUDGET_SLOT);
+            mv.visitJumpInsn(IFGT, hasBudget);
+            resume(i);
+            mv.visitLabel(hasBudget);
+        }
+        mv.visitIincInsn(BUDGET_SLOT, -1);
+        switch (op) {
+            case nil -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "nil", "(L" + PROGRAM + ";)V", false);
+                mv.visitJumpInsn(GOTO, completed);
+            }
+            case label -> {}
+            case add -> binary(a, b, c, DADD);
+            case sub -> binary(a, b, c, DSUB);
+            case mul -> binary(a, b, c, DMUL);
+            case div -> binary(a, b, c, DDIV);
+            case mod -> binary(a, b, c, DREM);
+            case pow -> math(a, b, c, "pow");
+            case max -> math(a, b, c, "max");
+            case min -> math(a, b, c, "min");
+            case set -> {
+                load(b);
+                store(a);
+            }
+            case eql -> {
+                load(b);
+                load(c);
+                condition(a, DCMPL, IFNE);
+            }
+            case eqz -> {
+                load(b);
+                mv.visitInsn(DCONST_0);
+                condition(a, DCMPL, IFNE);
+            }
+            case ltz -> {
+                load(b);
+                mv.visitInsn(DCONST_0);
+                condition(a, DCMPG, IFGE);
+            }
+            case gtz -> {
+                load(b);
+                mv.visitInsn(DCONST_0);
+                condition(a, DCMPL, IFLE);
+            }
+            case and -> bitwise(a, b, c, LAND);
+            case xor -> bitwise(a, b, c, LXOR);
+            case or -> bitwise(a, b, c, LOR);
+            case not -> {
+                load(b);
+                mv.visitInsn(D2L);
+                mv.visitLdcInsn(-1L);
+                mv.visitInsn(LXOR);
+                mv.visitInsn(L2D);
+                store(a);
+            }
+            case bsl -> shift(a, b, c, LSHL);
+            case bsr -> shift(a, b, c, LSHR);
+            case con -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                pushInt(b == Operand.NONE ? 1 : c == Operand.NONE ? 2 : 3);
+                load(a);
+                load(b);
+                load(c);
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "con", "(L" + PROGRAM + ";IDDD)V", false);
+            }
+            case abs -> math(a, b, "abs");
+            case flr -> math(a, b, "floor");
+            case cel -> math(a, b, "ceil");
+            case log -> math(a, b, "log10");
+            case ln -> math(a, b, "log");
+            case sin -> math(a, b, "sin");
+            case cos -> math(a, b, "cos");
+            case tan -> math(a, b, "tan");
+            case cbr -> math(a, b, "cbrt");
+            case sqr -> math(a, b, "sqrt");
+            case neg -> {
+                load(b);
+                mv.visitInsn(DNEG);
+                store(a);
+            }
+            case jmp -> mv.visitJumpInsn(GOTO, target(a));
+            case prt -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                mv.visitLdcInsn(compiled.strings[Operand.index(a)]);
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "prt", "(L" + PROGRAM + ";Ljava/lang/String;)V", false);
+            }
+            case yld -> resume(i + 1 < lines.length ? i + 1 : CompiledProgram.COMPLETED);
+            case slp -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                load(a);
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "sleep", "(L" + PROGRAM + ";D)V", false);
+                resume(i + 1 < lines.length ? i + 1 : CompiledProgram.COMPLETED);
+            }
+            case wai -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                pushInt(a);
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "await", "(L" + PROGRAM + ";I)V", false);
+                resume(i + 1 < lines.length ? i + 1 : CompiledProgram.COMPLETED);
+            }
+            case bez -> {
+                load(b);
+                mv.visitInsn(DCONST_0);
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(IFEQ, target(a));
+            }
+            case bnz -> {
+                load(b);
+                mv.visitInsn(DCONST_0);
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(IFNE, target(a));
+            }
+            case blt -> {
+                load(b);
+                load(c);
+                mv.visitInsn(DCMPG);
+                mv.visitJumpInsn(IFLT, target(a));
+            }
+            case bgt -> {
+                load(b);
+                load(c);
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(IFGT, target(a));
+            }
+        }
+    }
+
+    /**
+     * @return The label of the instruction a jump continues at, which may be the end of the program
+     */
+    private Label target(int operand) {
+        final int index = Operand.index(operand);
+        return index < lines.length ? lines[index] : completed;
+    }
+
+    /**
+     * Leaves the generated method, resuming from the given instruction on the next run
+     */
+    private void resume(int next) {
+        pushInt(next);
+        mv.visitVarInsn(ISTORE, RESUME_SLOT);
+        mv.visitJumpInsn(GOTO, exit);
+    }
+
+    private void binary(int a, int b, int c, int opcode) {
+        load(b);
+        load(c);
+        mv.visitInsn(opcode);
+        store(a);
+    }
+
+    private void bitwise(int a, int b, int c, int opcode) {
+        load(b);
+        mv.visitInsn(D2L);
+        load(c);
+        mv.visitInsn(D2L);
+        mv.visitInsn(opcode);
+        mv.visitInsn(L2D);
+        store(a);
+    }
+
+    private void shift(int a, int b, int c, int opcode) {
+        load(b);
+        mv.visitInsn(D2L);
+        load(c);
+        mv.visitInsn(D2I);
+        mv.visitInsn(opcode);
+        mv.visitInsn(L2D);
+        store(a);
+    }
+
+    private void math(int a, int b, String method) {
+        load(b);
+        mv.visitMethodInsn(INVOKESTATIC, MATH, method, "(D)D", false);
+        store(a);
+    }
+
+    private void math(int a, int b, int c, String method) {
+        load(b);
+        load(c);
+        mv.visitMethodInsn(INVOKESTATIC, MATH, method, "(DD)D", false);
+        store(a);
+    }
+
+    /**
+     * Expects the two values to be compared on the stack and stores 1.0 into the 1st argument if the comparison holds, else 0.0
+     */
+    private void condition(int a, int compare, int jumpIfFalse) {
+        final Label isFalse = new Label();
+        final Label end = new Label();
+        mv.visitInsn(compare);
+        mv.visitJumpInsn(jumpIfFalse, isFalse);
+        mv.visitInsn(DCONST_1);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isFalse);
+        mv.visitInsn(DCONST_0);
+        mv.visitLabel(end);
+        store(a);
+    }
+
+    private void load(int operand) {
+        if (operand == Operand.NONE) {
+            mv.visitInsn(DCONST_0);
+            return;
+        }
+        switch (Operand.kind(operand)) {
+            case Operand.REGISTER -> mv.visitVarInsn(DLOAD, registerSlot(Operand.index(operand)));
+            case Operand.CONSTANT -> mv.visitLdcInsn(compiled.constants[Operand.index(operand)]);
+            case Operand.PORT -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                mv.visitFieldInsn(GETFIELD, PROGRAM, "ports", "L" + DEVICE_BUS + ";");
+                mv.visitFieldInsn(GETFIELD, DEVICE_BUS, "values", "[D");
+                pushInt(Operand.index(operand));
+                mv.visitInsn(DALOAD);
+            }
+            case Operand.CHANNEL -> {
+                mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+                pushInt(Operand.index(operand));
+                mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "readChannel", "(L" + PROGRAM + ";I)D", false);
+            }
+            default -> mv.visitInsn(DCONST_0);
+        }
+    }
+
+    private void store(int operand) {
+        switch (Operand.kind(operand)) {
+            case Operand.REGISTER -> mv.visitVarInsn(DSTORE, registerSlot(Operand.index(operand)));
+            case Operand.PORT -> storeExternal("writePort", Operand.index(operand));
+            case Operand.CHANNEL -> storeExternal("writeChannel", Operand.index(operand));
+            default -> mv.visitInsn(POP2);
+        }
+    }
+
+    private void storeExternal(String helper, int index) {
+        mv.visitVarInsn(ALOAD, PROGRAM_SLOT);
+        pushInt(index);
+        mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, helper, "(DL" + PROGRAM + ";I)V", false);
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static int registerSlot(int register) {
+        return FIRST_REGISTER_SLOT + register * 2;
+    }
+}
@@ -0,0 +1,37 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+/**
+ * Operands are packed into a single int, the upper byte holding the kind of operand and the remaining
+ * bits holding the index of the register/port/channel or the index into the constant or string pool
+ */
+public final class Operand {
+
+    public static final int REGISTER = 0;
+    public static final int CONSTANT = 1;
+    public static final int PORT = 2;
+    public static final int CHANNEL = 3;
+    public static final int STRING = 4;
+    /**
+     * The index of an instruction, used as the target of jumps
+     */
+    public static final int LINE = 5;
+
+    public static final int NONE = -1;
+
+    private static final int KIND_SHIFT = 24;
+    private static final int INDEX_MASK = (1 << KIND_SHIFT) - 1;
+
+    private Operand() {}
+
+    public static int of(int kind, int index) {
+        return (kind << KIND_SHIFT) | index;
+    }
+
+    public static int kind(int operand) {
+        return operand >>> KIND_SHIFT;
+    }
+
+    public static int index(int operand) {
+        return operand & INDEX_MASK;
+    }
+}
@@ -0,0 +1,345 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.program.Operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a {@link CompiledProgram} into an equivalent one which executes fewer and cheaper instructions:
+ * <br>Registers holding a known constant are replaced by it, and pure operations on constants are folded into a {@code set}
+ * <br>{@code pow}, {@code div}, {@code mul} and {@code sub} by constants that make them trivial are replaced by cheaper operations
+ * <br>Writes to registers which are overwritten in the same block before being read are removed. Registers are
+ * visible outside the program, so a block's last write to each register is always kept
+ * <br>Branches comparing constants become jumps, or are removed if they are never taken
+ * <br>Labels are removed and jumps continue at the instruction after them instead
+ * <p>
+ * Constants are only tracked within a block, which ends at labels, jumps, branches, yields and sleeps, as the registers keep their
+ * values between runs and a yielded program resumes after the yield. Folding uses the same arithmetic as the
+ * {@link Interpreter}, so an optimized program produces the same values as the original
+ */
+public final class Optimizer {
+
+    private final CompiledProgram original;
+    private final int size;
+    private final int[] code;
+    private final boolean[] removed;
+    private final List<Double> constants = new ArrayList<>();
+    private final Map<Long, Integer> constantIndices = new HashMap<>();
+
+    private Optimizer(CompiledProgram original) {
+        this.original = original;
+        this.size = original.size();
+        this.code = original.code.clone();
+        this.removed = new boolean[size];
+        for (double constant : original.constants) {
+            constant(constant);
+        }
+    }
+
+    /**
+     * @return The optimized program, or the program itself if it is already optimized or has an error
+     */
+    public static CompiledProgram optimize(CompiledProgram compiled) {
+        if (compiled.isOptimized() || compiled.error != null) {
+            return compiled;
+        }
+        final Optimizer optimizer = new Optimizer(compiled);
+        optimizer.propagateConstants();
+        optimizer.removeDeadWrites();
+        return optimizer.build();
+    }
+
+    private boolean startsBlock(int index) {
+        return index == 0 || code[index * CompiledProgram.STRIDE] == Operation.label.ordinal() || endsBlock(index - 1);
+    }
+
+    private boolean endsBlock(int index) {
+        final Operation op = Operation.VALUES[code[index * CompiledProgram.STRIDE]];
+        return op.jumps() || op.suspends() || op == Operation.nil;
+    }
+
+    private void propagateConstants() {
+        final double[] values = new double[16];
+        final boolean[] known = new boolean[16];
+        for (int i = 0 ; i < size ; i++) {
+            if (startsBlock(i)) {
+                Arrays.fill(known, false);
+            }
+            final int pc = i * CompiledProgram.STRIDE;
+            final Operation op = Operation.VALUES[code[pc]];
+            if (op == Operation.con || op == Operation.slp) {
+                for (int operand = 1 ; operand < CompiledProgram.STRIDE ; operand++) {
+                    code[pc + operand] = substitute(code[pc + operand], values, known);
+                }
+            } else if (op.jumps() && op != Operation.jmp) {
+                code[pc + 2] = substitute(code[pc + 2], values, known);
+                code[pc + 3] = substitute(code[pc + 3], values, known);
+                foldBranch(i, op);
+            } else if (op.assigns()) {
+                code[pc + 2] = substitute(code[pc + 2], values, known);
+                code[pc + 3] = substitute(code[pc + 3], values, known);
+                fold(pc, op);
+                reduce(pc, Operation.VALUES[code[pc]]);
+                final int dest = code[pc + 1];
+                if (Operand.kind(dest) == Operand.REGISTER) {
+                    final int source = code[pc + 2];
+                    known[Operand.index(dest)] = code[pc] == Operation.set.ordinal() && Operand.kind(source) == Operand.CONSTANT;
+                    values[Operand.index(dest)] = known[Operand.index(dest)] ? constants.get(Operand.index(source)) : 0D;
+                }
+            }
+        }
+    }
+
+    private int substitute(int operand, double[] values, boolean[] known) {
+        if (operand != Operand.NONE && Operand.kind(operand) == Operand.REGISTER && known[Operand.index(operand)]) {
+            return constant(values[Operand.index(operand)]);
+        }
+        return operand;
+    }
+
+    /**
+     * Replaces a pure operation whose arguments are all constants with a {@code set} of its result
+     */
+    private void fold(int pc, Operation op) {
+        if (op == Operation.set || !isConstant(code[pc + 2]) || (code[pc + 3] != Operand.NONE && !isConstant(code[pc + 3]))) {
+            return;
+        }
+        final double b = constants.get(Operand.index(code[pc + 2]));
+        final double c = code[pc + 3] == Operand.NONE ? 0D : constants.get(Operand.index(code[pc + 3]));
+        rewrite(pc, Operation.set, constant(evaluate(op, b, c)), Operand.NONE);
+    }
+
+    /**
+     * Replaces a branch comparing constants with a jump if it is always taken, or removes it if it never is
+     */
+    private void foldBranch(int index, Operation op) {
+        final int pc = index * CompiledProgram.STRIDE;
+        if (!isConstant(code[pc + 2]) || (code[pc + 3] != Operand.NONE && !isConstant(code[pc + 3]))) {
+            return;
+        }
+        final double b = constants.get(Operand.index(code[pc + 2]));
+        final double c = code[pc + 3] == Operand.NONE ? 0D : constants.get(Operand.index(code[pc + 3]));
+        final boolean taken = switch (op) {
+            case bez -> b == 0;
+            case bnz -> b != 0;
+            case blt -> b < c;
+            case bgt -> b > c;
+            default -> throw new IllegalArgumentException("Operation " + op + " is not a branch");
+        };
+        if (taken) {
+            rewrite(pc, Operation.jmp, Operand.NONE, Operand.NONE);
+        } else {
+            removed[index] = true;
+        }
+    }
+
+    /**
+     * Replaces operations by constants with cheaper ones that give the exact same result
+     */
+    private void reduce(int pc, Operation op) {
+        final int b = code[pc + 2];
+        final int c = code[pc + 3];
+        if (!isConstant(c) || isChannel(b)) {
+            return;
+        }
+        final double value = constants.get(Operand.index(c));
+        switch (op) {
+            case pow -> {
+                if (value == 2D) {
+                    rewrite(pc, Operation.mul, b, b);
+                } else if (value == 1D) {
+                    rewrite(pc, Operation.set, b, Operand.NONE);
+                } else if (value == 0D) {
+                    rewrite(pc, Operation.set, constant(1D), Operand.NONE);
+                }
+            }
+            case div -> {
+                if (hasExactReciprocal(value)) {
+                    rewrite(pc, Operation.mul, b, constant(1D / value));
+                }
+            }
+            case mul -> {
+                if (value == 1D) {
+                    rewrite(pc, Operation.set, b, Operand.NONE);
+                }
+            }
+            case sub -> {
+                if (value == 0D) {
+                    rewrite(pc, Operation.set, b, Operand.NONE);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return If the value is a power of two whose reciprocal is a normal double, so multiplying by it is exact
+     */
+    private static boolean hasExactReciprocal(double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        final int exponent = Math.getExponent(value);
+        return (bits & 0xFFFFFFFFFFFFFL) == 0 && exponent > Double.MIN_EXPONENT && exponent < Double.MAX_EXPONENT;
+    }
+
+    private void rewrite(int pc, Operation op, int b, int c) {
+        code[pc] = op.ordinal();
+        code[pc + 2] = b;
+        code[pc + 3] = c;
+    }
+
+    private boolean isConstant(int operand) {
+        return operand != Operand.NONE && Operand.kind(operand) == Operand.CONSTANT;
+    }
+
+    /**
+     * Reading a {@link com.notenoughmail.examplemod.core.network.ChannelMode#QUEUE queued} channel consumes a
+     * message, so such reads may be neither removed nor duplicated
+     */
+    private boolean isChannel(int operand) {
+        return operand != Operand.NONE && Operand.kind(operand) == Operand.CHANNEL;
+    }
+
+    private boolean readsChannel(int pc) {
+        return isChannel(code[pc + 2]) || isChannel(code[pc + 3]);
+    }
+
+    /**
+     * Removes register writes which are overwritten later in the same block before being read, or which are never
+     * read at all. Registers are assumed to be read at the end of every block
+     */
+    private void removeDeadWrites() {
+        final boolean[] live = new boolean[16];
+        for (int i = size - 1 ; i >= 0 ; i--) {
+            if (endsBlock(i) || (i + 1 < size && startsBlock(i + 1)) || i == size - 1) {
+                Arrays.fill(live, true);
+            }
+            final int pc = i * CompiledProgram.STRIDE;
+            final Operation op = Operation.VALUES[code[pc]];
+            if (op.assigns() && Operand.kind(code[pc + 1]) == Operand.REGISTER) {
+                final int dest = Operand.index(code[pc + 1]);
+                final boolean dead = !live[dest] || (op == Operation.set && code[pc + 2] == code[pc + 1]);
+                if (dead && !readsChannel(pc)) {
+                    removed[i] = true;
+                    continue;
+                }
+                live[dest] = false;
+            }
+            forEachRead(i, reg -> live[reg] = true);
+        }
+    }
+
+    private void forEachRead(int index, RegisterConsumer consumer) {
+        final int pc = index * CompiledProgram.STRIDE;
+        final Operation op = Operation.VALUES[code[pc]];
+        final int first = op == Operation.con || op == Operation.slp ? 1 : op.assigns() || op.jumps() ? 2 : CompiledProgram.STRIDE;
+        for (int operand = first ; operand < CompiledProgram.STRIDE ; operand++) {
+            if (code[pc + operand] != Operand.NONE && Operand.kind(code[pc + operand]) == Operand.REGISTER) {
+                consumer.accept(Operand.index(code[pc + operand]));
+            }
+        }
+    }
+
+    /**
+     * Drops the labels and removed instructions, remapping jumps to the index their target now has
+     */
+    private CompiledProgram build() {
+        final int[] remapped = new int[size + 1];
+        int kept = 0;
+        for (int i = 0 ; i < size ; i++) {
+            remapped[i] = kept;
+            if (!removed[i] && code[i * CompiledProgram.STRIDE] != Operation.label.ordinal()) {
+                kept++;
+            } else {
+                removed[i] = true;
+            }
+        }
+        remapped[size] = kept;
+
+        final List<Double> pool = new ArrayList<>();
+        final Map<Long, Integer> poolIndices = new HashMap<>();
+        final int[] optimized = new int[kept * CompiledProgram.STRIDE];
+        final int[] lineNumbers = new int[kept];
+        for (int i = 0 ; i < size ; i++) {
+            if (removed[i]) {
+                continue;
+            }
+            final int pc = i * CompiledProgram.STRIDE;
+            final int target = remapped[i] * CompiledProgram.STRIDE;
+            System.arraycopy(code, pc, optimized, target, CompiledProgram.STRIDE);
+            lineNumbers[remapped[i]] = original.lineNumbers[i];
+            if (Operation.VALUES[code[pc]].jumps()) {
+                optimized[target + 1] = Operand.of(Operand.LINE, remapped[Operand.index(code[pc + 1])]);
+            }
+            for (int operand = 1 ; operand < CompiledProgram.STRIDE ; operand++) {
+                if (isConstant(code[pc + operand])) {
+                    final double value = constants.get(Operand.index(code[pc + operand]));
+                    final int index = poolIndices.computeIfAbsent(Double.doubleToLongBits(value), bits -> {
+                        pool.add(value);
+                        return pool.size() - 1;
+                    });
+                    optimized[target + operand] = Operand.of(Operand.CONSTANT, index);
+                }
+            }
+        }
+        final double[] constantPool = new double[pool.size()];
+        for (int i = 0 ; i < constantPool.length ; i++) {
+            constantPool[i] = pool.get(i);
+        }
+        return new CompiledProgram(original, optimized, constantPool, lineNumbers);
+    }
+
+    private int constant(double value) {
+        final int index = constantIndices.computeIfAbsent(Double.doubleToLongBits(value), bits -> {
+            constants.add(value);
+            return constants.size() - 1;
+        });
+        return Operand.of(Operand.CONSTANT, index);
+    }
+
+    /**
+     * Computes a pure operation the same way the {@link Interpreter} does
+     */
+    static double evaluate(Operation op, double b, double c) {
+        return switch (op) {
+            case add -> b + c;
+            case sub -> b - c;
+            case mul -> b * c;
+            case div -> b / c;
+            case pow -> Math.pow(b, c);
+            case set -> b;
+            case eql -> b == c ? 1D : 0D;
+            case eqz -> b == 0 ? 1D : 0D;
+            case ltz -> b < 0 ? 1D : 0D;
+            case gtz -> b > 0 ? 1D : 0D;
+            case mod -> b % c;
+            case and -> (long) b & (long) c;
+            case xor -> (long) b ^ (long) c;
+            case not -> ~ (long) b;
+            case bsl -> (long) b << (int) c;
+            case bsr -> (long) b >> (int) c;
+            case or -> (long) b | (long) c;
+            case abs -> Math.abs(b);
+            case flr -> Math.floor(b);
+            case cel -> Math.ceil(b);
+            case log -> Math.log10(b);
+            case max -> Math.max(b, c);
+            case min -> Math.min(b, c);
+            case ln -> Math.log(b);
+            case sin -> Math.sin(b);
+            case cos -> Math.cos(b);
+            case tan -> Math.tan(b);
+            case cbr -> Math.cbrt(b);
+            case sqr -> Math.sqrt(b);
+            case neg -> -b;
+            default -> throw new IllegalArgumentException("Operation " + op + " is not pure");
+        };
+    }
+
+    @FunctionalInterface
+    private interface RegisterConsumer {
+        void accept(int register);
+    }
+}
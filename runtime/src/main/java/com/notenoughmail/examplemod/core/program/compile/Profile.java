@@ -0,0 +1,138 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.line.Line;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Execution counts and times of a {@link Program} being profiled, per instruction and the taken count of each jump.
+ * Profiled programs are run one instruction at a time through the {@link Interpreter} instead of the
+ * {@link JitCompiler JIT} or {@link BatchInterpreter}, so programs which are not profiled pay nothing for it
+ */
+public final class Profile {
+
+    /**
+     * A loop taking at least this share of the program's time is reported as hot
+     */
+    public static final double HOT_LOOP_SHARE = 0.5;
+
+    private CompiledProgram code;
+    private long[] counts;
+    private long[] nanos;
+    private long[] taken;
+    private long runs = 0;
+
+    public Profile(CompiledProgram code) {
+        reset(code);
+    }
+
+    /**
+     * Clears the profile, which is done whenever the profiled program's code changes
+     */
+    public void reset(CompiledProgram code) {
+        this.code = code;
+        counts = new long[code.size()];
+        nanos = new long[code.size()];
+        taken = new long[code.size()];
+        runs = 0;
+    }
+
+    /**
+     * Runs the code like {@link CompiledProgram#run(Program, int, int)}, recording every instruction executed
+     */
+    public int run(CompiledProgram compiled, Program program, int start, int budget) {
+        if (compiled != code) {
+            reset(compiled);
+        }
+        runs++;
+        int i = start;
+        while (budget-- > 0) {
+            final long begin = System.nanoTime();
+            final int next = Interpreter.run(compiled, program, i, 1);
+            nanos[i] += System.nanoTime() - begin;
+            counts[i]++;
+            final Operation op = Operation.VALUES[compiled.code[i * CompiledProgram.STRIDE]];
+            if (op.jumps() && next == target(i)) {
+                taken[i]++;
+            }
+            if (next == CompiledProgram.COMPLETED || op.suspends()) {
+                return next;
+            }
+            i = next;
+        }
+        return i;
+    }
+
+    private int target(int instruction) {
+        final int target = Operand.index(code.code[instruction * CompiledProgram.STRIDE + 1]);
+        return target < code.size() ? target : CompiledProgram.COMPLETED;
+    }
+
+    /**
+     * @return The program's listing with the executions and share of time of every line, followed by the totals of
+     * every operation and the loops taken
+     */
+    public List<String> report(String name) {
+        final List<String> report = new ArrayList<>();
+        long totalCount = 0;
+        long totalNanos = 0;
+        int lastLine = 0;
+        for (int i = 0 ; i < counts.length ; i++) {
+            totalCount += counts[i];
+            totalNanos += nanos[i];
+            lastLine = Math.max(lastLine, code.lineNumbers[i]);
+        }
+        for (Line line : code.lines) {
+            lastLine = Math.max(lastLine, line.getLineNumber());
+        }
+        report.add("Profile: " + name + " (" + runs + " runs, " + totalCount + " instructions, " + totalNanos / 1000 + "us)");
+
+        final long[] lineCounts = new long[lastLine + 1];
+        final long[] lineNanos = new long[lastLine + 1];
+        final long[] opCounts = new long[Operation.VALUES.length];
+        final long[] opNanos = new long[Operation.VALUES.length];
+        for (int i = 0 ; i < counts.length ; i++) {
+            lineCounts[code.lineNumbers[i]] += counts[i];
+            lineNanos[code.lineNumbers[i]] += nanos[i];
+            opCounts[code.code[i * CompiledProgram.STRIDE]] += counts[i];
+            opNanos[code.code[i * CompiledProgram.STRIDE]] += nanos[i];
+        }
+        for (Line line : code.lines) {
+            final StringBuilder listing = new StringBuilder();
+            line.appendToProgram(listing);
+            listing.setLength(listing.length() - 1);
+            final int number = line.getLineNumber();
+            report.add(String.format("%-32s %10d %6.2f%%", listing, lineCounts[number], share(lineNanos[number], totalNanos)));
+        }
+
+        report.add("Operations:");
+        for (Operation op : Operation.VALUES) {
+            if (opCounts[op.ordinal()] > 0) {
+                report.add(String.format("  %-4s %10d %6.2f%%", op.name(), opCounts[op.ordinal()], share(opNanos[op.ordinal()], totalNanos)));
+            }
+        }
+
+        report.add("Loops:");
+        for (int i = 0 ; i < counts.length ; i++) {
+            final int target = target(i);
+            if (taken[i] == 0 || target == CompiledProgram.COMPLETED || target > i) {
+                continue;
+            }
+            long loopNanos = 0;
+            for (int j = target ; j <= i ; j++) {
+                loopNanos += nanos[j];
+            }
+            final double share = share(loopNanos, totalNanos);
+            report.add(String.format("  %s -> %s %10d %6.2f%%%s", Line.getLineNumber(code.lineNumbers[i]),
+                    Line.getLineNumber(code.lineNumbers[target]), taken[i], share, share >= HOT_LOOP_SHARE * 100 ? " HOT" : ""));
+        }
+        return report;
+    }
+
+    private static double share(long part, long total) {
+        return total == 0 ? 0D : part * 100D / total;
+    }
+}
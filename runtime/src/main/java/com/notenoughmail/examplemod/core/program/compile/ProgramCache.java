@@ -0,0 +1,164 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares {@link CompiledProgram compiled programs} between all programs with identical source, so that
+ * source pasted into many machines is only compiled and stored once. Saved code is shared the same way by its
+ * content, so those machines still share their code once the world is loaded again. Threads asking for the same code
+ * while it is being compiled wait for that compilation rather than compiling it again. Entries are dropped once no
+ * program uses their code anymore
+ */
+public final class ProgramCache {
+
+    private static final ConcurrentHashMap<Object, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<CompiledProgram> QUEUE = new ReferenceQueue<>();
+    /**
+     * The code currently being compiled, an entry is only removed once its code is in {@link #CACHE}
+     */
+    private static final ConcurrentHashMap<Object, CompletableFuture<CompiledProgram>> COMPILING = new ConcurrentHashMap<>();
+
+    private ProgramCache() {}
+
+    public static CompiledProgram get(String source) {
+        return get(source, false);
+    }
+
+    /**
+     * @param optimize If the code should be {@link Optimizer optimized}, optimized code holds on to the unoptimized
+     *                 code it was made from, so both are cached
+     */
+    public static CompiledProgram get(String source, boolean optimize) {
+        return get(new Key(source, optimize), () -> optimize ? Optimizer.optimize(get(source, false)) : ProgramCompiler.compile(source));
+    }
+
+    /**
+     * Reads code written by {@link ProgramCodec#write(CompiledProgram, DataCompound)},
+     * only decoding it if no program already uses code with the same content
+     *
+     * @param optimize If the code should be {@link Optimizer optimized}
+     */
+    public static CompiledProgram read(DataCompound tag, boolean optimize) {
+        return read(tag, CodeKey.of(tag, false), optimize);
+    }
+
+    private static CompiledProgram read(DataCompound tag, CodeKey unoptimized, boolean optimize) {
+        return optimize
+                ? get(unoptimized.optimized(), () -> Optimizer.optimize(read(tag, unoptimized, false)))
+                : get(unoptimized, () -> ProgramCodec.read(tag));
+    }
+
+    private static CompiledProgram get(Object key, Supplier<CompiledProgram> compiler) {
+        expungeStale();
+        CompiledProgram cached = getCached(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CompletableFuture<CompiledProgram> compiling = new CompletableFuture<>();
+        final CompletableFuture<CompiledProgram> running = COMPILING.putIfAbsent(key, compiling);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // Another thread may have finished compiling between the lookup and claiming the key
+            cached = getCached(key);
+            if (cached == null) {
+                cached = compiler.get();
+                CACHE.put(key, new Entry(key, cached));
+            }
+            compiling.complete(cached);
+            return cached;
+        } catch (RuntimeException e) {
+            compiling.completeExceptionally(e);
+            throw e;
+        } finally {
+            COMPILING.remove(key, compiling);
+        }
+    }
+
+    @Nullable
+    private static CompiledProgram getCached(Object key) {
+        final Entry entry = CACHE.get(key);
+        return entry != null ? entry.get() : null;
+    }
+
+    public static int size() {
+        expungeStale();
+        return CACHE.size();
+    }
+
+    private static void expungeStale() {
+        Entry stale;
+        while ((stale = (Entry) QUEUE.poll()) != null) {
+            CACHE.remove(stale.key, stale);
+        }
+    }
+
+    private record Key(String source, boolean optimize) {}
+
+    /**
+     * Everything {@link ProgramCodec} writes, so that two tags with equal keys decode to equal code
+     */
+    private record CodeKey(int[] code, int[] lineNumbers, long[] constants, String[] strings, String[] branchLabels, List<String> aliases, String error, String[] source, boolean optimize) {
+
+        static CodeKey of(DataCompound tag, boolean optimize) {
+            final DataCompound aliasTag = tag.getCompound("aliases");
+            final List<String> aliases = new ArrayList<>(aliasTag.size());
+            for (String alias : aliasTag.keys()) {
+                final DataCompound entry = aliasTag.getCompound(alias);
+                aliases.add(alias + ' ' + entry.getByte("kind") + ' ' + entry.getLong("value"));
+            }
+            // Compounds do not keep their keys in order
+            aliases.sort(null);
+            final Message error = ProgramCodec.readError(tag);
+            return new CodeKey(tag.getIntArray("code"), tag.getIntArray("lineNumbers"), tag.getLongArray("constants"), tag.getStringList("strings"), tag.getStringList("branchLabels"), aliases, error != null ? error.toString() : "", tag.getStringList("source"), optimize);
+        }
+
+        CodeKey optimized() {
+            return new CodeKey(code, lineNumbers, constants, strings, branchLabels, aliases, error, source, true);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CodeKey other
+                    && optimize == other.optimize
+                    && Arrays.equals(code, other.code)
+                    && Arrays.equals(lineNumbers, other.lineNumbers)
+                    && Arrays.equals(constants, other.constants)
+                    && Arrays.equals(strings, other.strings)
+                    && Arrays.equals(branchLabels, other.branchLabels)
+                    && aliases.equals(other.aliases)
+                    && error.equals(other.error)
+                    && Arrays.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Arrays.hashCode(code);
+            hash = 31 * hash + Arrays.hashCode(constants);
+            hash = 31 * hash + Arrays.hashCode(strings);
+            return 31 * hash + Boolean.hashCode(optimize);
+        }
+    }
+
+    private static final class Entry extends WeakReference<CompiledProgram> {
+
+        private final Object key;
+
+        Entry(Object key, CompiledProgram compiled) {
+            super(compiled, QUEUE);
+            this.key = key;
+        }
+    }
+}
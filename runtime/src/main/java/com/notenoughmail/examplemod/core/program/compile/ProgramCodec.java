@@ -0,0 +1,146 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Register;
+import com.notenoughmail.examplemod.core.program.line.BranchLine;
+import com.notenoughmail.examplemod.core.program.line.JumpLine;
+import com.notenoughmail.examplemod.core.program.line.LabelLine;
+import com.notenoughmail.examplemod.core.program.line.Line;
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link CompiledProgram compiled programs} in a compact form, the instruction stream and line numbers as
+ * int arrays, the constant pool as a long array of the raw double bits, and the string pool as a list of strings.
+ * The lines, labels and jump targets are rebuilt from the instruction stream when read. Programs compiled from source
+ * also write their source, so that they can still be {@link ProgramCompiler#recompile(CompiledProgram, SourceEdit) edited}
+ * once read
+ */
+public final class ProgramCodec {
+
+    public static final int VERSION = 1;
+
+    private ProgramCodec() {}
+
+    /**
+     * Writes the program, or the program it was optimized from if it is optimized
+     */
+    public static void write(CompiledProgram program, DataCompound tag) {
+        final CompiledProgram compiled = program.unoptimized();
+        tag.putInt("version", VERSION);
+        tag.putIntArray("code", compiled.code);
+        tag.putIntArray("lineNumbers", compiled.lineNumbers);
+        final long[] constants = new long[compiled.constants.length];
+        for (int i = 0 ; i < constants.length ; i++) {
+            constants[i] = Double.doubleToRawLongBits(compiled.constants[i]);
+        }
+        tag.putLongArray("constants", constants);
+        tag.putStringList("strings", compiled.strings);
+        // Branches have no room for their label in the instruction stream, so the labels are written separately
+        final List<String> branchLabels = new ArrayList<>();
+        for (Line line : compiled.lines) {
+            if (line instanceof BranchLine branch) {
+                branchLabels.add(branch.getLabel());
+            }
+        }
+        if (!branchLabels.isEmpty()) {
+            tag.putStringList("branchLabels", branchLabels.toArray(new String[0]));
+        }
+        compiled.aliases.write(tag.putCompound("aliases"));
+        if (compiled.error != null) {
+            compiled.error.write(tag.putCompound("errorMessage"));
+        }
+        if (compiled.source != null) {
+            tag.putStringList("source", compiled.source.lines);
+            tag.putIntArray("instructionLines", compiled.source.instructionLines);
+            tag.putIntArray("aliasLines", compiled.source.aliasLines);
+        }
+    }
+
+    public static CompiledProgram read(DataCompound tag) {
+        final int[] code = tag.getIntArray("code");
+        final int[] lineNumbers = tag.getIntArray("lineNumbers");
+        final long[] rawConstants = tag.getLongArray("constants");
+        final double[] constants = new double[rawConstants.length];
+        for (int i = 0 ; i < constants.length ; i++) {
+            constants[i] = Double.longBitsToDouble(rawConstants[i]);
+        }
+        final String[] strings = tag.getStringList("strings");
+        final SymbolTable aliases = SymbolTable.read(tag.getCompound("aliases"), SymbolTable.BUILTINS);
+        final Message error = readError(tag);
+
+        final SymbolTable labels = new SymbolTable(null, 4);
+        final Line[] lines = new Line[lineNumbers.length];
+        for (int i = 0 ; i < lines.length ; i++) {
+            final int base = i * CompiledProgram.STRIDE;
+            if (code[base] == Operation.label.ordinal()) {
+                labels.putLabel(strings[Operand.index(code[base + 1])], i);
+            }
+        }
+        final String[] branchLabels = tag.getStringList("branchLabels");
+        int branch = 0;
+        for (int i = 0 ; i < lines.length ; i++) {
+            final Operation op = Operation.VALUES[code[i * CompiledProgram.STRIDE]];
+            final String label = op.jumps() && op != Operation.jmp ? branchLabels[branch++] : null;
+            lines[i] = decodeLine(code, i, lineNumbers[i], constants, strings, label);
+        }
+        final SourceMap source = tag.contains("source") ? new SourceMap(tag.getStringList("source"), tag.getIntArray("instructionLines"), tag.getIntArray("aliasLines")) : null;
+        return new CompiledProgram(lines, labels, aliases, code, constants, strings, lineNumbers, error, source);
+    }
+
+    @Nullable
+    static Message readError(DataCompound tag) {
+        if (tag.contains("errorMessage")) {
+            return Message.read(tag.getCompound("errorMessage"));
+        }
+        // Older versions wrote the error as the game's own json text, which can only be shown as is
+        return tag.contains("error") ? Message.literal(tag.getString("error")) : null;
+    }
+
+    private static Line decodeLine(int[] code, int index, int lineNumber, double[] constants, String[] strings, @Nullable String branchLabel) {
+        final int base = index * CompiledProgram.STRIDE;
+        final Operation op = Operation.VALUES[code[base]];
+        final int a = code[base + 1];
+        if (op == Operation.label) {
+            return new LabelLine(strings[Operand.index(a)], lineNumber);
+        } else if (op == Operation.jmp) {
+            return new JumpLine(strings[Operand.index(code[base + 2])], Operand.index(a), lineNumber);
+        } else if (op == Operation.prt) {
+            return new Line(new Object[]{op, strings[Operand.index(a)]}, op, lineNumber);
+        } else if (branchLabel != null) {
+            final Object[] operands = new Object[op.minArgs() - 2];
+            for (int i = 0 ; i < operands.length ; i++) {
+                operands[i] = decodeOperand(code[base + 2 + i], constants);
+            }
+            return new BranchLine(op, branchLabel, operands, Operand.index(a), lineNumber);
+        }
+        int count = 1;
+        while (count < CompiledProgram.STRIDE && code[base + count] != Operand.NONE) {
+            count++;
+        }
+        final Object[] args = new Object[count];
+        args[0] = op;
+        for (int i = 1 ; i < count ; i++) {
+            args[i] = decodeOperand(code[base + i], constants);
+        }
+        return new Line(args, op, lineNumber);
+    }
+
+    private static Object decodeOperand(int operand, double[] constants) {
+        final int index = Operand.index(operand);
+        return switch (Operand.kind(operand)) {
+            case Operand.REGISTER -> Register.VALUES[index];
+            case Operand.CONSTANT -> constants[index];
+            case Operand.PORT -> DevicePort.VALUES[index];
+            case Operand.CHANNEL -> NetworkChannel.VALUES[index];
+            default -> throw new IllegalStateException("Unexpected operand kind: " + Operand.kind(operand));
+        };
+    }
+}
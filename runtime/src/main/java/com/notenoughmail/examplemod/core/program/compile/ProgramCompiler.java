@@ -0,0 +1,366 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Register;
+import com.notenoughmail.examplemod.core.program.line.JumpLine;
+import com.notenoughmail.examplemod.core.program.line.LabelLine;
+import com.notenoughmail.examplemod.core.program.line.Line;
+import com.notenoughmail.examplemod.core.program.parse.Lexer;
+import com.notenoughmail.examplemod.core.program.parse.Parser;
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers the {@link Line lines} of a program into a {@link CompiledProgram}, linking every jump to the index of its label
+ */
+public final class ProgramCompiler {
+
+    private final SymbolTable labels;
+    @Nullable
+    private Message error;
+    private final Map<Long, Integer> constantIndices = new HashMap<>();
+    private final List<Double> constants = new ArrayList<>();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private ProgramCompiler(SymbolTable labels, @Nullable Message error) {
+        this.labels = labels;
+        this.error = error;
+    }
+
+    /**
+     * Parses and compiles program source, errors are reported through {@link CompiledProgram#error}
+     */
+    public static CompiledProgram compile(CharSequence source) {
+        final Parser parser = new Parser();
+        final SourceMap.Builder builder = new SourceMap.Builder();
+        final Line[] lines = parser.parse(new Lexer(source), 0, builder);
+        final SourceMap sourceMap = new SourceMap(SourceMap.split(source), builder.instructionLines(), builder.aliasLines());
+        return new ProgramCompiler(parser.labels, parser.getError()).lower(lines, parser.aliases, sourceMap);
+    }
+
+    public static CompiledProgram compile(Line[] lines, SymbolTable labels, SymbolTable aliases) {
+        return new ProgramCompiler(labels, null).lower(lines.clone(), aliases, null);
+    }
+
+    /**
+     * Applies an edit to the source of a compiled program. Only the inserted lines are parsed, every other
+     * instruction is copied from the previous program, shifted and relinked as needed
+     * <p>
+     * Adding or removing an alias changes how every line after it is parsed, so such edits, and edits to
+     * programs which failed to compile, recompile the whole source instead
+     *
+     * Programs which were not compiled from source are edited as their {@link #withSource(CompiledProgram) decompiled} source
+     *
+     * @throws IllegalArgumentException If the edit is outside of the source
+     */
+    public static CompiledProgram recompile(CompiledProgram previous, SourceEdit edit) {
+        previous = withSource(previous);
+        final SourceMap map = previous.source;
+        if (edit.endLine() > map.lineCount()) {
+            throw new IllegalArgumentException("Edit of lines " + edit.firstLine() + " to " + edit.endLine() + " is outside of the source, which has " + map.lineCount() + " lines");
+        } else if (previous.error != null || map.definesAlias(edit.firstLine(), edit.endLine())) {
+            return compile(map.apply(edit));
+        }
+        final int first = map.firstInstruction(edit.firstLine());
+        final int end = map.firstInstruction(edit.endLine());
+        final String text = String.join("\n", edit.insertedLines());
+        final Parser parser = new Parser(aliasesBefore(map, edit.firstLine()), new SymbolTable(null, 4));
+        final SourceMap.Builder inserted = new SourceMap.Builder();
+        final Line[] parsed = parser.parse(new Lexer(text, 0, text.length(), edit.firstLine()), first, inserted);
+        if (inserted.aliasLines().length > 0) {
+            return compile(map.apply(edit));
+        }
+
+        final int delta = parsed.length - (end - first);
+        final int size = previous.size() + delta;
+        final Line[] lines = new Line[size];
+        final int[] lineNumbers = new int[size];
+        System.arraycopy(previous.lines, 0, lines, 0, first);
+        System.arraycopy(parsed, 0, lines, first, parsed.length);
+        System.arraycopy(previous.lineNumbers, 0, lineNumbers, 0, first);
+        for (int i = first ; i < size ; i++) {
+            if (i >= first + parsed.length) {
+                lines[i] = previous.lines[i - delta].renumber(i);
+            }
+            lineNumbers[i] = lines[i].getLineNumber();
+        }
+        final SourceMap sourceMap = edit(map, edit, first, end, inserted.instructionLines());
+
+        // Labels only need to be collected again if any of them moved
+        final boolean labelsMoved = delta != 0 || containsLabel(previous.lines, first, end) || containsLabel(parsed, 0, parsed.length);
+        final SymbolTable labels = labelsMoved ? collectLabels(lines) : previous.labels;
+        final ProgramCompiler compiler = new ProgramCompiler(labels, parser.getError());
+        compiler.seed(previous);
+
+        final int[] code = new int[size * CompiledProgram.STRIDE];
+        System.arraycopy(previous.code, 0, code, 0, first * CompiledProgram.STRIDE);
+        System.arraycopy(previous.code, end * CompiledProgram.STRIDE, code, (first + parsed.length) * CompiledProgram.STRIDE, (previous.size() - end) * CompiledProgram.STRIDE);
+        Arrays.fill(code, first * CompiledProgram.STRIDE, (first + parsed.length) * CompiledProgram.STRIDE, Operand.NONE);
+        // Lines are visited in order so that the first error is the same one a full compile would report
+        for (int i = labelsMoved ? 0 : first ; i < (labelsMoved ? size : first + parsed.length) ; i++) {
+            if (i >= first && i < first + parsed.length) {
+                compiler.lowerLine(lines, i, code);
+            } else if (lines[i] instanceof JumpLine jump) {
+                compiler.relink(jump, lines, i, code);
+            }
+        }
+
+        // Removed lines leave their constants and strings behind, once there are too many lower everything again
+        if (compiler.constants.size() > size * 3 + 16 || compiler.strings.size() > size * 2 + 16) {
+            return new ProgramCompiler(labels, parser.getError()).lower(lines, previous.aliases, sourceMap);
+        }
+        return compiler.build(lines, labels, previous.aliases, code, lineNumbers, sourceMap);
+    }
+
+    /**
+     * @return The program itself if it was compiled from source, otherwise the program compiled again from source
+     * which is decompiled from it. The decompiled source defines every alias at the top, followed by one line for
+     * every instruction, so the instructions are the same as those of the program
+     */
+    public static CompiledProgram withSource(CompiledProgram program) {
+        return program.source != null ? program : compile(decompile(program.unoptimized()));
+    }
+
+    private static String decompile(CompiledProgram program) {
+        final StringBuilder builder = new StringBuilder();
+        final List<String> aliases = program.aliases.keys();
+        aliases.sort(null);
+        for (String alias : aliases) {
+            final int symbol = program.aliases.find(alias);
+            builder.append(Parser.ALIAS).append(' ').append(alias).append(' ');
+            switch (program.aliases.kind(symbol)) {
+                case SymbolTable.REGISTER -> builder.append(Register.VALUES[program.aliases.intValue(symbol)]);
+                case SymbolTable.PORT -> builder.append(DevicePort.VALUES[program.aliases.intValue(symbol)]);
+                case SymbolTable.CHANNEL -> builder.append(NetworkChannel.VALUES[program.aliases.intValue(symbol)]);
+                default -> appendNumber(builder, program.aliases.doubleValue(symbol));
+            }
+            builder.append('\n');
+        }
+        for (Line line : program.lines) {
+            if (line instanceof LabelLine label) {
+                builder.append(label.getLabel()).append(':');
+            } else {
+                final Object[] args = line.getArgs();
+                for (int i = 0 ; i < args.length ; i++) {
+                    if (i > 0) {
+                        builder.append(' ');
+                    }
+                    if (args[i] instanceof Double number) {
+                        appendNumber(builder, number);
+                    } else {
+                        builder.append(args[i]);
+                    }
+                }
+            }
+            builder.append('\n');
+        }
+        if (!builder.isEmpty()) {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+
+    private static void appendNumber(StringBuilder builder, double value) {
+        if (Double.isInfinite(value)) {
+            // Too large for a double, which is how the source wrote it in the first place
+            builder.append(value > 0 ? "1e999" : "-1e999");
+        } else {
+            builder.append(value);
+        }
+    }
+
+    /**
+     * @return The aliases defined by the source before the line
+     */
+    private static SymbolTable aliasesBefore(SourceMap map, int sourceLine) {
+        final Parser replay = new Parser();
+        for (int alias : map.aliasLines) {
+            if (alias >= sourceLine) {
+                break;
+            }
+            final String line = map.lines[alias];
+            final Lexer lexer = new Lexer(line, 0, line.length(), alias);
+            if (lexer.nextLine()) {
+                replay.processLine(lexer, 0);
+            }
+        }
+        return replay.aliases;
+    }
+
+    private static SourceMap edit(SourceMap map, SourceEdit edit, int first, int end, int[] insertedLines) {
+        final int[] instructionLines = new int[map.instructionLines.length - (end - first) + insertedLines.length];
+        System.arraycopy(map.instructionLines, 0, instructionLines, 0, first);
+        System.arraycopy(insertedLines, 0, instructionLines, first, insertedLines.length);
+        for (int i = end ; i < map.instructionLines.length ; i++) {
+            instructionLines[i - end + first + insertedLines.length] = map.instructionLines[i] + edit.lineDelta();
+        }
+        final int[] aliasLines = map.aliasLines.clone();
+        for (int i = 0 ; i < aliasLines.length ; i++) {
+            if (aliasLines[i] >= edit.endLine()) {
+                aliasLines[i] += edit.lineDelta();
+            }
+        }
+        return new SourceMap(map.applyLines(edit), instructionLines, aliasLines);
+    }
+
+    private static boolean containsLabel(Line[] lines, int start, int end) {
+        for (int i = start ; i < end ; i++) {
+            if (lines[i] instanceof LabelLine) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SymbolTable collectLabels(Line[] lines) {
+        final SymbolTable labels = new SymbolTable(null, 4);
+        for (int i = 0 ; i < lines.length ; i++) {
+            if (lines[i] instanceof LabelLine label) {
+                labels.putLabel(label.getLabel(), i);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Continues the constant and string pools of a previous program, so that its instructions remain valid
+     */
+    private void seed(CompiledProgram previous) {
+        for (double constant : previous.constants) {
+            constant(constant);
+        }
+        for (String str : previous.strings) {
+            string(str);
+        }
+    }
+
+    private void error(Message error, int lineNumber) {
+        if (this.error == null) {
+            this.error = Message.of("message.examplemod.error_on_line", Line.getLineNumber(lineNumber), error);
+        }
+    }
+
+    /**
+     * Lowers the lines, replacing jumps with their linked form
+     */
+    private CompiledProgram lower(Line[] lines, SymbolTable aliases, @Nullable SourceMap sourceMap) {
+        final int[] code = new int[lines.length * CompiledProgram.STRIDE];
+        Arrays.fill(code, Operand.NONE);
+        final int[] lineNumbers = new int[lines.length];
+        for (int i = 0 ; i < lines.length ; i++) {
+            lineNumbers[i] = lines[i].getLineNumber();
+            lowerLine(lines, i, code);
+        }
+        return build(lines, labels, aliases, code, lineNumbers, sourceMap);
+    }
+
+    private void lowerLine(Line[] lines, int index, int[] code) {
+        final Line line = lines[index];
+        final Object[] args = line.getArgs();
+        final Operation op = (Operation) args[0];
+        final int base = index * CompiledProgram.STRIDE;
+        code[base] = op.ordinal();
+        if (line instanceof LabelLine label) {
+            code[base + 1] = string(label.getLabel());
+        } else if (line instanceof JumpLine jump) {
+            if (op == Operation.jmp) {
+                code[base + 2] = string(jump.getLabel());
+            } else {
+                lowerOperands(line, args, 2, code, base);
+            }
+            relink(jump, lines, index, code);
+        } else if (op == Operation.prt) {
+            code[base + 1] = string((String) args[1]);
+        } else if (op == Operation.wai) {
+            lowerOperands(line, args, 1, code, base);
+            final int kind = Operand.kind(code[base + 1]);
+            if (kind != Operand.PORT && kind != Operand.CHANNEL) {
+                error(Message.of("message.examplemod.requires_port_or_channel", op.name(), args[1]), line.getLineNumber());
+            }
+        } else {
+            lowerOperands(line, args, 1, code, base);
+            if (op.assigns() && Operand.kind(code[base + 1]) == Operand.CONSTANT) {
+                error(Operation.requiresRDC(op.name(), args[1]), line.getLineNumber());
+            }
+        }
+    }
+
+    private void lowerOperands(Line line, Object[] args, int first, int[] code, int base) {
+        for (int arg = first ; arg < args.length && arg < CompiledProgram.STRIDE ; arg++) {
+            final int operand = operand(args[arg]);
+            if (operand == Operand.NONE) {
+                error(Message.of("message.examplemod.could_not_retrieve_value", args[arg]), line.getLineNumber());
+            }
+            code[base + arg] = operand;
+        }
+    }
+
+    private void relink(JumpLine jump, Line[] lines, int index, int[] code) {
+        final JumpLine linked = link(jump);
+        if (linked.getTarget() != jump.getTarget()) {
+            lines[index] = linked;
+        }
+        code[index * CompiledProgram.STRIDE + 1] = Operand.of(Operand.LINE, linked.getTarget());
+    }
+
+    private CompiledProgram build(Line[] lines, SymbolTable labels, SymbolTable aliases, int[] code, int[] lineNumbers, @Nullable SourceMap sourceMap) {
+        final double[] pool = new double[constants.size()];
+        for (int i = 0 ; i < pool.length ; i++) {
+            pool[i] = constants.get(i);
+        }
+        return new CompiledProgram(lines, labels, aliases, code, pool, strings.toArray(new String[0]), lineNumbers, error, sourceMap);
+    }
+
+    /**
+     * Resolves the label of the jump to the index of the line it is on, reporting labels that do not exist
+     */
+    private JumpLine link(JumpLine jump) {
+        final int target = labels.getLabel(jump.getLabel());
+        if (target < 0) {
+            if (error == null) {
+                error = Message.of("message.examplemod.label_does_not_exist", Line.getLineNumber(jump.getLineNumber()));
+            }
+            return jump.link(0);
+        }
+        return jump.link(target);
+    }
+
+    private int operand(Object arg) {
+        if (arg instanceof Register reg) {
+            return Operand.of(Operand.REGISTER, reg.ordinal());
+        } else if (arg instanceof Number number) {
+            return constant(number.doubleValue());
+        } else if (arg instanceof DevicePort port) {
+            return Operand.of(Operand.PORT, port.ordinal());
+        } else if (arg instanceof NetworkChannel channel) {
+            return Operand.of(Operand.CHANNEL, channel.ordinal());
+        }
+        return Operand.NONE;
+    }
+
+    private int constant(double value) {
+        final int index = constantIndices.computeIfAbsent(Double.doubleToLongBits(value), bits -> {
+            constants.add(value);
+            return constants.size() - 1;
+        });
+        return Operand.of(Operand.CONSTANT, index);
+    }
+
+    private int string(String value) {
+        final int index = stringIndices.computeIfAbsent(value, str -> {
+            strings.add(str);
+            return strings.size() - 1;
+        });
+        return Operand.of(Operand.STRING, index);
+    }
+}
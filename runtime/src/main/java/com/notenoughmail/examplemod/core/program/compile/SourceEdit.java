@@ -0,0 +1,39 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import java.util.List;
+
+/**
+ * Replaces {@code removedLines} lines of a program's source, starting at the zero-based source line
+ * {@code firstLine}, with {@code insertedLines}
+ */
+public record SourceEdit(int firstLine, int removedLines, List<String> insertedLines) {
+
+    public SourceEdit {
+        if (firstLine < 0 || removedLines < 0) {
+            throw new IllegalArgumentException("Invalid edit range: " + firstLine + " + " + removedLines);
+        }
+        insertedLines = List.copyOf(insertedLines);
+    }
+
+    /**
+     * @param text The replacement text, split into lines on {@code \n}
+     */
+    public static SourceEdit replace(int firstLine, int removedLines, String text) {
+        return new SourceEdit(firstLine, removedLines, List.of(text.split("\n", -1)));
+    }
+
+    public static SourceEdit delete(int firstLine, int removedLines) {
+        return new SourceEdit(firstLine, removedLines, List.of());
+    }
+
+    public int endLine() {
+        return firstLine + removedLines;
+    }
+
+    /**
+     * @return The change in the number of source lines
+     */
+    public int lineDelta() {
+        return insertedLines.size() - removedLines;
+    }
+}
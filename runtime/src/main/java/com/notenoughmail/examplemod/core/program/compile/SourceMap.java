@@ -0,0 +1,138 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import java.util.Arrays;
+
+/**
+ * Relates the instructions of a {@link CompiledProgram} to the source they were parsed from, which is what allows
+ * {@link ProgramCompiler#recompile(CompiledProgram, SourceEdit) recompiling} only the lines of an edit
+ */
+public final class SourceMap {
+
+    /**
+     * The text of every source line, including empty and comment lines
+     */
+    final String[] lines;
+    /**
+     * The source line each instruction was parsed from, in ascending order
+     */
+    final int[] instructionLines;
+    /**
+     * The source lines which define aliases, in ascending order
+     */
+    final int[] aliasLines;
+
+    SourceMap(String[] lines, int[] instructionLines, int[] aliasLines) {
+        this.lines = lines;
+        this.instructionLines = instructionLines;
+        this.aliasLines = aliasLines;
+    }
+
+    public int lineCount() {
+        return lines.length;
+    }
+
+    /**
+     * @return The full source
+     */
+    public String text() {
+        return String.join("\n", lines);
+    }
+
+    /**
+     * @return The index of the first instruction parsed from the source line or any line after it
+     */
+    public int firstInstruction(int sourceLine) {
+        return lowerBound(instructionLines, sourceLine);
+    }
+
+    /**
+     * @return If any line in {@code [start, end)} defines an alias
+     */
+    boolean definesAlias(int start, int end) {
+        return lowerBound(aliasLines, start) < lowerBound(aliasLines, end);
+    }
+
+    /**
+     * @return The full source, with the edit applied
+     */
+    String apply(SourceEdit edit) {
+        return String.join("\n", applyLines(edit));
+    }
+
+    String[] applyLines(SourceEdit edit) {
+        final String[] edited = new String[lines.length + edit.lineDelta()];
+        System.arraycopy(lines, 0, edited, 0, edit.firstLine());
+        for (int i = 0 ; i < edit.insertedLines().size() ; i++) {
+            edited[edit.firstLine() + i] = edit.insertedLines().get(i);
+        }
+        System.arraycopy(lines, edit.endLine(), edited, edit.firstLine() + edit.insertedLines().size(), lines.length - edit.endLine());
+        return edited;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static String[] split(CharSequence source) {
+        int count = 1;
+        for (int i = 0 ; i < source.length() ; i++) {
+            if (source.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        final String[] lines = new String[count];
+        int start = 0;
+        int line = 0;
+        for (int i = 0 ; i < source.length() ; i++) {
+            if (source.charAt(i) == '\n') {
+                lines[line++] = source.subSequence(start, i).toString();
+                start = i + 1;
+            }
+        }
+        lines[line] = source.subSequence(start, source.length()).toString();
+        return lines;
+    }
+
+    /**
+     * Collects the source lines of instructions and aliases as they are parsed
+     */
+    public static final class Builder {
+
+        private int[] instructionLines = new int[16];
+        private int instructionCount = 0;
+        private int[] aliasLines = new int[4];
+        private int aliasCount = 0;
+
+        public void instruction(int sourceLine) {
+            if (instructionCount == instructionLines.length) {
+                instructionLines = Arrays.copyOf(instructionLines, instructionCount * 2);
+            }
+            instructionLines[instructionCount++] = sourceLine;
+        }
+
+        public void alias(int sourceLine) {
+            if (aliasCount == aliasLines.length) {
+                aliasLines = Arrays.copyOf(aliasLines, aliasCount * 2);
+            }
+            aliasLines[aliasCount++] = sourceLine;
+        }
+
+        int[] instructionLines() {
+            return Arrays.copyOf(instructionLines, instructionCount);
+        }
+
+        int[] aliasLines() {
+            return Arrays.copyOf(aliasLines, aliasCount);
+        }
+    }
+}
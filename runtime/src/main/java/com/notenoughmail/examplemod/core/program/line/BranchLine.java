@@ -0,0 +1,58 @@
+package com.notenoughmail.examplemod.core.program.line;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Program;
+
+/**
+ * A jump which is only taken if its condition holds, the arguments after the label are the values compared
+ */
+public class BranchLine extends JumpLine {
+
+    public BranchLine(Operation operation, String label, Object[] operands, int lineNumber) {
+        this(operation, label, operands, -1, lineNumber);
+    }
+
+    public BranchLine(Operation operation, String label, Object[] operands, int target, int lineNumber) {
+        super(args(operation, label, operands), operation, target, lineNumber);
+    }
+
+    private static Object[] args(Operation operation, String label, Object[] operands) {
+        final Object[] args = new Object[operands.length + 2];
+        args[0] = operation;
+        args[1] = label;
+        System.arraycopy(operands, 0, args, 2, operands.length);
+        return args;
+    }
+
+    /**
+     * @return The values compared by the branch
+     */
+    public Object[] getOperands() {
+        final Object[] operands = new Object[args.length - 2];
+        System.arraycopy(args, 2, operands, 0, operands.length);
+        return operands;
+    }
+
+    @Override
+    public BranchLine link(int target) {
+        return new BranchLine(operation, getLabel(), getOperands(), target, lineNumber);
+    }
+
+    @Override
+    public BranchLine renumber(int lineNumber) {
+        return lineNumber == this.lineNumber ? this : new BranchLine(operation, getLabel(), getOperands(), getTarget(), lineNumber);
+    }
+
+    @Override
+    public void write(DataCompound tag) {
+        tag.putByte("type", (byte) 3);
+        tag.putInt("operation", operation.ordinal());
+        tag.putInt("lineNumber", lineNumber);
+        tag.putString("label", getLabel());
+        tag.putInt("target", getTarget());
+        for (int i = 2 ; i < args.length ; i++) {
+            Program.writeArgValue(args[i], tag.addCompound("args"));
+        }
+    }
+}
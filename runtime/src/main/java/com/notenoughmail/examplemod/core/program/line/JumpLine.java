@@ -0,0 +1,54 @@
+package com.notenoughmail.examplemod.core.program.line;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.program.Operation;
+
+public class JumpLine extends Line {
+
+    private final int target;
+
+    public JumpLine(String label, int lineNumber) {
+        this(label, -1, lineNumber);
+    }
+
+    public JumpLine(String label, int target, int lineNumber) {
+        this(new Object[]{Operation.jmp, label}, Operation.jmp, target, lineNumber);
+    }
+
+    protected JumpLine(Object[] args, Operation operation, int target, int lineNumber) {
+        super(args, operation, lineNumber);
+        this.target = target;
+    }
+
+    public String getLabel() {
+        return (String) args[1];
+    }
+
+    /**
+     * @return The index of the line the label is on, or -1 if the jump has not been linked
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * @return A copy of this jump, linked to the given line
+     */
+    public JumpLine link(int target) {
+        return new JumpLine(getLabel(), target, lineNumber);
+    }
+
+    @Override
+    public JumpLine renumber(int lineNumber) {
+        return lineNumber == this.lineNumber ? this : new JumpLine(getLabel(), target, lineNumber);
+    }
+
+    @Override
+    public void write(DataCompound tag) {
+        tag.putByte("type", (byte) 2);
+        tag.putInt("operation", operation.ordinal());
+        tag.putInt("lineNumber", lineNumber);
+        tag.putString("label", getLabel());
+        tag.putInt("target", target);
+    }
+}
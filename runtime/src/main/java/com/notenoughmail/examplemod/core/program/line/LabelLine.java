@@ -1,19 +1,23 @@
 package com.notenoughmail.examplemod.core.program.line;
 
+import com.notenoughmail.examplemod.core.data.DataCompound;
 import com.notenoughmail.examplemod.core.program.Operation;
-import com.notenoughmail.examplemod.core.program.Program;
-import net.minecraft.nbt.CompoundTag;
 
 public class LabelLine extends Line {
 
-    public LabelLine(Program program, String label, int lineNumber) {
-        super(program, new Object[]{Operation.label, label}, Operation.label, lineNumber);
+    public LabelLine(String label, int lineNumber) {
+        super(new Object[]{Operation.label, label}, Operation.label, lineNumber);
     }
 
     public String getLabel() {
         return (String) args[1];
     }
 
+    @Override
+    public LabelLine renumber(int lineNumber) {
+        return lineNumber == this.lineNumber ? this : new LabelLine(getLabel(), lineNumber);
+    }
+
     @Override
     public void appendToProgram(StringBuilder builder) {
         builder.append(getLineNumber(lineNumber));
@@ -23,15 +27,10 @@ public class LabelLine extends Line {
     }
 
     @Override
-    public void run() {} // Do nothing
-
-    @Override
-    public CompoundTag writeToNbt() {
-        final CompoundTag tag = new CompoundTag();
+    public void write(DataCompound tag) {
         tag.putByte("type", (byte) 1);
         tag.putInt("operation", operation.ordinal());
         tag.putInt("lineNumber", lineNumber);
         tag.putString("label", getLabel());
-        return tag;
     }
 }
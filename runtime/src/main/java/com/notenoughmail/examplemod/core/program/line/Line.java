@@ -1,19 +1,19 @@
 package com.notenoughmail.examplemod.core.program.line;
 
+import com.notenoughmail.examplemod.core.data.DataCompound;
 import com.notenoughmail.examplemod.core.program.Operation;
 import com.notenoughmail.examplemod.core.program.Program;
-import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.ListTag;
+import com.notenoughmail.examplemod.core.program.compile.CompiledProgram;
+
+import java.util.List;
 
 public class Line {
 
-    protected final Program parentProgram;
     protected final Object[] args;
     protected final Operation operation;
     protected final int lineNumber;
 
-    public Line(Program program, Object[] args, Operation operation, int lineNumber) {
-        this.parentProgram = program;
+    public Line(Object[] args, Operation operation, int lineNumber) {
         this.args = args;
         this.operation = operation;
         this.lineNumber = lineNumber;
@@ -22,10 +22,6 @@ public class Line {
         }
     }
 
-    public Program getProgram() {
-        return parentProgram;
-    }
-
     public Object[] getArgs() {
         return args;
     }
@@ -34,8 +30,11 @@ public class Line {
         return lineNumber;
     }
 
-    public void run() {
-        operation.invoke(this);
+    /**
+     * @return A copy of this line with a different line number, or this line if the number is unchanged
+     */
+    public Line renumber(int lineNumber) {
+        return lineNumber == this.lineNumber ? this : new Line(args, operation, lineNumber);
     }
 
     @Override
@@ -66,37 +65,40 @@ public class Line {
         return transitional;
     }
 
-    public CompoundTag writeToNbt() {
-        final CompoundTag tag = new CompoundTag();
+    public void write(DataCompound tag) {
         tag.putByte("type", (byte) 0);
         tag.putInt("operation", operation.ordinal());
         tag.putInt("lineNumber", lineNumber);
-        final ListTag argsList = new ListTag();
         for (int i = 1 ; i < args.length ; i++) {
-            argsList.add(i - 1, Program.writeArgValue(args[i]));
+            Program.writeArgValue(args[i], tag.addCompound("args"));
         }
-        tag.put("args", argsList);
-        return tag;
     }
 
-    public static Line readFromNbt(CompoundTag tag, Program program) {
+    public static Line read(DataCompound tag) {
         final byte type = tag.getByte("type");
         final Operation op = Operation.VALUES[tag.getInt("operation")];
         final int lineNumber = tag.getInt("lineNumber");
         if (type == 0) {
-            final Object[] args = new Object[op.minArgs()];
+            final List<DataCompound> list = tag.getCompoundList("args");
+            final Object[] args = new Object[op == Operation.con ? Math.min(list.size() + 1, CompiledProgram.STRIDE) : op.minArgs()];
             args[0] = op;
-            final ListTag list = tag.getList("args", 10);
-            for (int i = 1; i < op.minArgs() ; i++) {
-                args[i] = Program.readArgValue(list.getCompound(i - 1));
+            for (int i = 1; i < args.length ; i++) {
+                args[i] = Program.readArgValue(list.get(i - 1));
             }
-            return new Line(program, args, op, lineNumber);
+            return new Line(args, op, lineNumber);
         } else if (type == 1 && op == Operation.label) {
             final String label = tag.getString("label");
-            return new LabelLine(program, label, lineNumber);
+            return new LabelLine(label, lineNumber);
         } else if (type == 2 && op == Operation.jmp) {
             final String label = tag.getString("label");
-            return new JumpLine(program, label, lineNumber);
+            return new JumpLine(label, tag.contains("target") ? tag.getInt("target") : -1, lineNumber);
+        } else if (type == 3 && op.jumps()) {
+            final List<DataCompound> list = tag.getCompoundList("args");
+            final Object[] operands = new Object[op.minArgs() - 2];
+            for (int i = 0 ; i < operands.length ; i++) {
+                operands[i] = Program.readArgValue(list.get(i));
+            }
+            return new BranchLine(op, tag.getString("label"), operands, tag.getInt("target"), lineNumber);
         }
         return null; // Should not happen!
     }
@@ -0,0 +1,157 @@
+package com.notenoughmail.examplemod.core.program.parse;
+
+import java.util.Arrays;
+
+/**
+ * Splits program source into lines of whitespace separated tokens in a single pass. Tokens are kept as offsets
+ * into the source rather than substrings, and everything after a token beginning with {@code #} is skipped as
+ * a comment. Lexers hold no shared state, so any number of them may run at once
+ */
+public final class Lexer {
+
+    private final CharSequence source;
+    private final int length;
+    private int position = 0;
+    private int sourceLine = -1;
+    private int nextSourceLine = 0;
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int tokenCount = 0;
+
+    public Lexer(CharSequence source) {
+        this(source, 0, source.length(), 0);
+    }
+
+    /**
+     * Lexes the region {@code [start, end)} of the source, counting source lines from {@code firstLine}
+     */
+    public Lexer(CharSequence source, int start, int end, int firstLine) {
+        this.source = source;
+        this.position = start;
+        this.length = end;
+        this.nextSourceLine = firstLine;
+    }
+
+    /**
+     * Advances to the next line that has any tokens on it
+     *
+     * @return If there was such a line before the end of the source
+     */
+    public boolean nextLine() {
+        while (position < length) {
+            tokenCount = 0;
+            sourceLine = nextSourceLine++;
+            boolean comment = false;
+            while (position < length) {
+                final char c = source.charAt(position);
+                if (c == '\n') {
+                    position++;
+                    break;
+                } else if (comment || isWhitespace(c)) {
+                    position++;
+                } else if (c == '#') {
+                    comment = true;
+                    position++;
+                } else {
+                    final int start = position;
+                    while (position < length && !isWhitespace(source.charAt(position)) && source.charAt(position) != '\n') {
+                        position++;
+                    }
+                    addToken(start, position);
+                }
+            }
+            if (tokenCount > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private void addToken(int start, int end) {
+        if (tokenCount == starts.length) {
+            starts = Arrays.copyOf(starts, tokenCount * 2);
+            ends = Arrays.copyOf(ends, tokenCount * 2);
+        }
+        starts[tokenCount] = start;
+        ends[tokenCount] = end;
+        tokenCount++;
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    /**
+     * @return The zero-based index of the current line in the source, including empty and comment lines
+     */
+    public int sourceLine() {
+        return sourceLine;
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    public int start(int token) {
+        return starts[token];
+    }
+
+    public int end(int token) {
+        return ends[token];
+    }
+
+    public int length(int token) {
+        return ends[token] - starts[token];
+    }
+
+    public char charAt(int token, int index) {
+        return source.charAt(starts[token] + index);
+    }
+
+    /**
+     * @return The index of the first occurrence of the char in the token, or -1
+     */
+    public int indexOf(int token, char c) {
+        for (int i = starts[token] ; i < ends[token] ; i++) {
+            if (source.charAt(i) == c) {
+                return i - starts[token];
+            }
+        }
+        return -1;
+    }
+
+    public boolean tokenEquals(int token, String str) {
+        final int start = starts[token];
+        if (ends[token] - start != str.length()) {
+            return false;
+        }
+        for (int i = 0 ; i < str.length() ; i++) {
+            if (source.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String token(int token) {
+        return source.subSequence(starts[token], ends[token]).toString();
+    }
+
+    /**
+     * @return The source text from the start of the {@code first} token to the end of the last token of the line
+     */
+    public String text(int first) {
+        return source.subSequence(starts[first], ends[tokenCount - 1]).toString();
+    }
+
+    /**
+     * @return The value of the token, or {@link Double#NaN} if it is not a number
+     */
+    public double number(int token) {
+        return NumberParser.parse(source, starts[token], ends[token]);
+    }
+}
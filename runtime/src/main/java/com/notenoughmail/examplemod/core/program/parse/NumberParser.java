@@ -0,0 +1,167 @@
+package com.notenoughmail.examplemod.core.program.parse;
+
+/**
+ * Parses numeric literals straight from a region of a char sequence. Accepts an optional leading {@code -}
+ * followed by either a decimal literal, {@code 12}, {@code 1.5}, {@code 3e8}, or a hexadecimal literal,
+ * {@code 0xFF}, {@code 0x1.8}, {@code 0x1p4}
+ * <p>
+ * Literals which can be converted exactly using double arithmetic are, the rest go through
+ * {@link Double#parseDouble(String)} so that the result is always correctly rounded
+ */
+public final class NumberParser {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT = 1L << 53;
+
+    private NumberParser() {}
+
+    /**
+     * @return The value of the literal, or {@link Double#NaN} if the region is not a valid literal
+     */
+    public static double parse(CharSequence chars, int start, int end) {
+        if (start >= end) {
+            return Double.NaN;
+        }
+        final boolean negative = chars.charAt(start) == '-';
+        final int digits = negative ? start + 1 : start;
+        final double value;
+        if (end - digits > 2 && chars.charAt(digits) == '0' && (chars.charAt(digits + 1) | 0x20) == 'x') {
+            value = parseHex(chars, digits + 2, end);
+        } else {
+            value = parseDecimal(chars, digits, end);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseDecimal(CharSequence chars, int start, int end) {
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        int i = start;
+        final int integerStart = i;
+        for ( ; i < end && isDigit(chars.charAt(i)) ; i++) {
+            if (significant < 19) {
+                mantissa = mantissa * 10 + (chars.charAt(i) - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+            } else {
+                exponent++;
+            }
+        }
+        if (i == integerStart) {
+            return Double.NaN;
+        }
+        if (i < end && chars.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            for ( ; i < end && isDigit(chars.charAt(i)) ; i++) {
+                if (significant < 19) {
+                    mantissa = mantissa * 10 + (chars.charAt(i) - '0');
+                    exponent--;
+                    if (mantissa != 0) {
+                        significant++;
+                    }
+                }
+            }
+            if (i == fractionStart) {
+                return Double.NaN;
+            }
+        }
+        if (i < end && (chars.charAt(i) | 0x20) == 'e') {
+            final int written = parseExponent(chars, i + 1, end);
+            if (written == Integer.MIN_VALUE) {
+                return Double.NaN;
+            }
+            exponent += written;
+            i = end;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        if (significant < 19 && mantissa <= MAX_EXACT && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            return exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        }
+        return Double.parseDouble(chars.subSequence(start, end).toString());
+    }
+
+    private static double parseHex(CharSequence chars, int start, int end) {
+        long mantissa = 0;
+        int exponent = 0;
+        boolean exact = true;
+        int i = start;
+        for ( ; i < end && Character.digit(chars.charAt(i), 16) >= 0 ; i++) {
+            exact &= mantissa < (MAX_EXACT >> 4);
+            mantissa = (mantissa << 4) | Character.digit(chars.charAt(i), 16);
+        }
+        if (i == start) {
+            return Double.NaN;
+        }
+        if (i < end && chars.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            for ( ; i < end && Character.digit(chars.charAt(i), 16) >= 0 ; i++) {
+                exact &= mantissa < (MAX_EXACT >> 4);
+                mantissa = (mantissa << 4) | Character.digit(chars.charAt(i), 16);
+                exponent -= 4;
+            }
+            if (i == fractionStart) {
+                return Double.NaN;
+            }
+        }
+        final int mantissaEnd = i;
+        if (i < end && (chars.charAt(i) | 0x20) == 'p') {
+            final int written = parseExponent(chars, i + 1, end);
+            if (written == Integer.MIN_VALUE) {
+                return Double.NaN;
+            }
+            exponent += written;
+            i = end;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        if (exact) {
+            return Math.scalb((double) mantissa, exponent);
+        }
+        return Double.parseDouble("0x" + chars.subSequence(start, mantissaEnd) + "p" + (exponent + 4 * fractionDigits(chars, start, mantissaEnd)));
+    }
+
+    private static int fractionDigits(CharSequence chars, int start, int end) {
+        for (int i = start ; i < end ; i++) {
+            if (chars.charAt(i) == '.') {
+                return end - i - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The exponent, clamped to a range that cannot overflow, or {@link Integer#MIN_VALUE} if it is invalid
+     */
+    private static int parseExponent(CharSequence chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return Integer.MIN_VALUE;
+        }
+        int exponent = 0;
+        for ( ; i < end ; i++) {
+            final char c = chars.charAt(i);
+            if (!isDigit(c)) {
+                return Integer.MIN_VALUE;
+            }
+            exponent = Math.min(exponent * 10 + (c - '0'), 100_000);
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
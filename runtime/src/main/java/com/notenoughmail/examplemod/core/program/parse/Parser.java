@@ -0,0 +1,203 @@
+package com.notenoughmail.examplemod.core.program.parse;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.Operation;
+import com.notenoughmail.examplemod.core.program.Register;
+import com.notenoughmail.examplemod.core.program.compile.CompiledProgram;
+import com.notenoughmail.examplemod.core.program.compile.SourceMap;
+import com.notenoughmail.examplemod.core.program.line.BranchLine;
+import com.notenoughmail.examplemod.core.program.line.JumpLine;
+import com.notenoughmail.examplemod.core.program.line.LabelLine;
+import com.notenoughmail.examplemod.core.program.line.Line;
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns program source into {@link Line lines}, collecting the program's aliases and labels along the way.
+ * Parsing stops at the first error
+ * <p>
+ * Register, port and channel names always mean themselves, aliasing one of them is an error rather than silently
+ * redirecting every later use of the name
+ */
+public class Parser {
+
+    public static final String ALIAS = "alias";
+
+    public final SymbolTable aliases;
+    public final SymbolTable labels;
+    @Nullable
+    private Message error;
+
+    public Parser() {
+        this(new SymbolTable(), new SymbolTable(null, 4));
+    }
+
+    public Parser(SymbolTable aliases, SymbolTable labels) {
+        this.aliases = aliases;
+        this.labels = labels;
+    }
+
+    @Nullable
+    public Message getError() {
+        return error;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    public void error(Message error) {
+        if (this.error == null) {
+            this.error = error;
+        }
+    }
+
+    public void error(Message error, int lineNumber) {
+        error(Message.of("message.examplemod.error_on_line", Line.getLineNumber(lineNumber), error));
+    }
+
+    public Line[] parse(CharSequence source) {
+        return parse(new Lexer(source), 0, null);
+    }
+
+    /**
+     * Parses every remaining line of the lexer, numbering the resulting lines from {@code firstLineNumber}
+     *
+     * @param sourceMap If not null, records the source line of every resulting line and alias
+     */
+    public Line[] parse(Lexer lexer, int firstLineNumber, @Nullable SourceMap.Builder sourceMap) {
+        final List<Line> programLines = new ArrayList<>();
+        int lineNumber = firstLineNumber;
+        while (lexer.nextLine()) {
+            final Line processedLine = processLine(lexer, lineNumber);
+            if (hasError()) {
+                break;
+            }
+            if (processedLine instanceof LabelLine label) {
+                labels.putLabel(label.getLabel(), lineNumber);
+            }
+            if (processedLine != null) {
+                lineNumber++;
+                programLines.add(processedLine);
+                if (sourceMap != null) {
+                    sourceMap.instruction(lexer.sourceLine());
+                }
+            } else if (sourceMap != null && lexer.tokenEquals(0, ALIAS)) {
+                sourceMap.alias(lexer.sourceLine());
+            }
+        }
+        return programLines.toArray(new Line[0]);
+    }
+
+    /**
+     * Processes the current line of the lexer, alias lines are applied to the alias table and return null
+     */
+    @Nullable
+    public Line processLine(Lexer lexer, int lineNumber) {
+        final int tokens = lexer.tokenCount();
+        if (lexer.tokenEquals(0, ALIAS)) {
+            if (tokens < 3) {
+                error(Message.of("message.examplemod.line_has_incorrect_number_of_args", Line.getLineNumber(lineNumber), ALIAS, 3, tokens));
+                return null;
+            }
+            if (SymbolTable.BUILTINS.find(lexer.source(), lexer.start(1), lexer.end(1)) != SymbolTable.NONE) {
+                error(Message.of("message.examplemod.alias_shadows_builtin", Line.getLineNumber(lineNumber), lexer.token(1)));
+                return null;
+            }
+            final Object value = processArg(lexer, 2);
+            if (value != null) {
+                putAlias(aliases, lexer.token(1), value);
+            }
+            return null;
+        }
+        final Operation op = Operation.find(lexer.source(), lexer.start(0), lexer.end(0));
+        if (op != null) {
+            if (op.minArgs() > tokens) {
+                error(Message.of("message.examplemod.line_has_incorrect_number_of_args", Line.getLineNumber(lineNumber), op.name(), op.minArgs(), tokens));
+                return null;
+            } else if (op == Operation.con && tokens > CompiledProgram.STRIDE) {
+                // An instruction only has room for three operands
+                error(Message.of("message.examplemod.line_has_incorrect_number_of_args", Line.getLineNumber(lineNumber), op.name(), CompiledProgram.STRIDE, tokens));
+                return null;
+            } else if (op == Operation.prt) {
+                return new Line(new Object[]{op, lexer.text(1)}, op, lineNumber);
+            } else if (op == Operation.jmp) {
+                return new JumpLine(lexer.token(1), lineNumber);
+            } else if (op.jumps()) {
+                final Object[] operands = new Object[op.minArgs() - 2];
+                for (int i = 0 ; i < operands.length ; i++) {
+                    final Object arg = processArg(lexer, i + 2);
+                    if (hasError()) {
+                        return null;
+                    }
+                    operands[i] = arg;
+                }
+                return new BranchLine(op, lexer.token(1), operands, lineNumber);
+            } else {
+                final int argCount = op == Operation.con ? tokens : op.minArgs();
+                final Object[] lineArgs = new Object[argCount];
+                lineArgs[0] = op;
+                for (int i = 1; i < argCount ; i++) {
+                    final Object arg = processArg(lexer, i);
+                    if (hasError()) {
+                        return null;
+                    }
+                    lineArgs[i] = arg;
+                }
+                return new Line(lineArgs, op, lineNumber);
+            }
+        } else if (tokens == 1) {
+            final int length = lexer.length(0);
+            if (length > 1 && lexer.indexOf(0, ':') == length - 1) {
+                return new LabelLine(lexer.source().subSequence(lexer.start(0), lexer.end(0) - 1).toString(), lineNumber);
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Object processArg(Lexer lexer, int token) {
+        final int symbol = aliases.find(lexer.source(), lexer.start(token), lexer.end(token));
+        if (symbol != SymbolTable.NONE) {
+            final int index = aliases.intValue(symbol);
+            switch (aliases.kind(symbol)) {
+                case SymbolTable.REGISTER -> {
+                    return Register.VALUES[index];
+                }
+                case SymbolTable.PORT -> {
+                    return DevicePort.VALUES[index];
+                }
+                case SymbolTable.CHANNEL -> {
+                    return NetworkChannel.VALUES[index];
+                }
+                case SymbolTable.CONSTANT -> {
+                    return aliases.doubleValue(symbol);
+                }
+            }
+        } else {
+            final double number = lexer.number(token);
+            if (!Double.isNaN(number)) {
+                return number;
+            }
+        }
+        error(Message.of("message.examplemod.could_not_parse_arg", lexer.token(token)));
+        return null;
+    }
+
+    public static void putAlias(SymbolTable aliases, String alias, Object value) {
+        if (value instanceof Register reg) {
+            aliases.put(alias, SymbolTable.REGISTER, reg.ordinal());
+        } else if (value instanceof DevicePort port) {
+            aliases.put(alias, SymbolTable.PORT, port.ordinal());
+        } else if (value instanceof NetworkChannel channel) {
+            aliases.put(alias, SymbolTable.CHANNEL, channel.ordinal());
+        } else if (value instanceof Number number) {
+            aliases.putConstant(alias, number.doubleValue());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.notenoughmail.examplemod.core.sync;
+
+import com.notenoughmail.examplemod.core.program.Console;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The registers and console of a program elsewhere, kept up to date by applying the deltas of a {@link SyncTracker}
+ */
+public class ProgramView {
+
+    public final double[] registers = new double[16];
+    public final Console console = new Console();
+
+    /**
+     * @throws IOException If the delta is malformed, after which the view may be partially updated
+     */
+    public void apply(byte[] delta) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+        final int flags = in.readUnsignedByte();
+        final int mask = in.readUnsignedShort();
+        for (int i = 0 ; i < registers.length ; i++) {
+            if ((mask & 1 << i) != 0) {
+                registers[i] = Double.longBitsToDouble(in.readLong());
+            }
+        }
+        final int count = in.readUnsignedByte();
+        if (count > Console.CAPACITY) {
+            throw new IOException("Delta holds " + count + " console messages");
+        }
+        if (count > 0 || (flags & SyncTracker.CONSOLE_RESET) != 0) {
+            final long first = in.readLong();
+            if ((flags & SyncTracker.CONSOLE_RESET) != 0) {
+                console.restartAt(first);
+            }
+            for (int i = 0 ; i < count ; i++) {
+                console.read(first + i, in);
+            }
+        }
+    }
+
+    /**
+     * Clears the view, for when it has to be filled again from a delta holding everything
+     */
+    public void reset() {
+        Arrays.fill(registers, 0D);
+        console.restartAt(0);
+    }
+}
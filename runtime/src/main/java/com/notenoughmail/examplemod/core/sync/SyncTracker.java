@@ -0,0 +1,102 @@
+package com.notenoughmail.examplemod.core.sync;
+
+import com.notenoughmail.examplemod.core.program.Console;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Remembers what one watcher has been sent of a {@link Program}, so that only the registers and console messages
+ * which changed since have to be sent again. A delta is laid out as
+ * <ul>
+ *     <li>a flags byte, {@link #CONSOLE_RESET} when the watcher has to clear its console first</li>
+ *     <li>a short with a bit set for every register that changed, followed by their raw values</li>
+ *     <li>the number of console messages, followed by the sequence number of the first and the messages themselves
+ *     as written by {@link Console#write(long, java.io.DataOutput)}</li>
+ * </ul>
+ * and is applied by a {@link ProgramView}. A tracker is not thread safe and should only be used while its program is
+ * not running
+ */
+public class SyncTracker {
+
+    public static final int CONSOLE_RESET = 1;
+
+    private final long[] sentRegisters = new long[16];
+    private boolean synced = false;
+    private long consoleStart;
+    /**
+     * The sequence number of the first console message the watcher has not been sent
+     */
+    private long consoleWritten;
+    /**
+     * The repeat count of the last message the watcher has been sent, which may still go up
+     */
+    private int lastRepeats;
+
+    /**
+     * @return The changes to the program since the last delta, or null if nothing changed. The first delta holds
+     * everything
+     */
+    @Nullable
+    public byte[] delta(Program program) {
+        int mask = 0;
+        for (int i = 0 ; i < sentRegisters.length ; i++) {
+            final long bits = Double.doubleToRawLongBits(program.registers[i]);
+            if (!synced || bits != sentRegisters[i]) {
+                sentRegisters[i] = bits;
+                mask |= 1 << i;
+            }
+        }
+
+        final Console console = program.console;
+        final long written = console.getWritten();
+        final long held = written - console.size();
+        final boolean reset = !synced || console.getStart() != consoleStart;
+        long first = reset ? held : Math.max(consoleWritten, held);
+        if (!reset && consoleWritten > held && consoleWritten > consoleStart && console.getRepeats(consoleWritten - 1) != lastRepeats) {
+            first = consoleWritten - 1;
+        }
+        final int count = (int) (written - first);
+
+        if (mask == 0 && count == 0 && !reset) {
+            return null;
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(3 + Long.bitCount(mask) * 8 + (count > 0 ? 9 + count * 16 : 1));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(reset ? CONSOLE_RESET : 0);
+            out.writeShort(mask);
+            for (int i = 0 ; i < sentRegisters.length ; i++) {
+                if ((mask & 1 << i) != 0) {
+                    out.writeLong(sentRegisters[i]);
+                }
+            }
+            out.writeByte(count);
+            if (count > 0 || reset) {
+                out.writeLong(first);
+                for (long sequence = first ; sequence < written ; sequence++) {
+                    console.write(sequence, out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        synced = true;
+        consoleStart = console.getStart();
+        consoleWritten = written;
+        lastRepeats = written > held ? console.getRepeats(written - 1) : 0;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Makes the next delta hold everything again
+     */
+    public void reset() {
+        synced = false;
+    }
+}
@@ -0,0 +1,136 @@
+package com.notenoughmail.examplemod.runner;
+
+import com.notenoughmail.examplemod.core.Message;
+import com.notenoughmail.examplemod.core.engine.CompileService;
+import com.notenoughmail.examplemod.core.engine.ProgramScheduler;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.ProgramShard;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Runs every program in a directory for a number of ticks without the game, against {@link StubDevices stub devices},
+ * and reports how fast they ran and any errors they hit
+ * <p>
+ * {@code BatchRunner <dir> [--ticks N] [--budget N] [--threads N]}, with {@code --threads 0} programs are compiled and
+ * ticks run on the calling thread, as they are before the server starts its workers
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            usage();
+            return;
+        }
+        final Path dir = Path.of(args[0]);
+        int ticks = 200;
+        int budget = Program.DEFAULT_INSTRUCTION_BUDGET;
+        int threads = 0;
+        for (int i = 1 ; i < args.length ; i += 2) {
+            final int value;
+            try {
+                value = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                usage();
+                return;
+            }
+            switch (args[i]) {
+                case "--ticks" -> ticks = value;
+                case "--budget" -> budget = value;
+                case "--threads" -> threads = value;
+                default -> {
+                    usage();
+                    return;
+                }
+            }
+        }
+
+        final CompileService compiler = new CompileService();
+        if (threads > 0) {
+            compiler.start(threads);
+        }
+        final long compileStart = System.nanoTime();
+        final List<Program> programs = load(dir, compiler);
+        final long compileElapsed = System.nanoTime() - compileStart;
+        compiler.shutdown();
+        if (programs.isEmpty()) {
+            System.out.println("No programs found in " + dir);
+            return;
+        }
+        final StubDevices devices = new StubDevices();
+        final ProgramScheduler scheduler = new ProgramScheduler();
+        final ProgramShard shard = scheduler.registry.addShard(devices);
+        for (Program program : programs) {
+            scheduler.registry.add(shard, program);
+        }
+        if (threads > 0) {
+            scheduler.start(threads);
+        }
+        final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        final long start = System.nanoTime();
+        for (int tick = 0 ; tick < ticks ; tick++) {
+            devices.nextTick();
+            scheduler.tick(budget);
+        }
+        final long elapsed = System.nanoTime() - start;
+        scheduler.shutdown();
+
+        long instructions = 0;
+        for (Program program : programs) {
+            instructions += program.getInstructionCount();
+        }
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        final double seconds = elapsed / 1e9;
+        System.out.printf("%d programs compiled in %.3f s%n", programs.size(), compileElapsed / 1e9);
+        System.out.printf("%d programs, %d ticks in %.3f s (%.3f ms/tick)%n", programs.size(), ticks, seconds, elapsed / 1e6 / ticks);
+        System.out.printf("%d instructions, %.0f instructions/s%n", instructions, instructions / seconds);
+        System.out.printf("Peak heap %.1f MiB%n", peakHeap / (1024D * 1024D));
+        System.out.printf("%d port writes, %d channel writes%n", devices.portWrites, devices.channelWrites);
+        System.out.printf("%d programs asleep at the end%n", scheduler.getSleepingCount());
+        for (Program program : programs) {
+            final Message error = program.getError();
+            if (error != null) {
+                System.out.println(program.name + ": " + error);
+            }
+        }
+    }
+
+    /**
+     * Every regular file in the directory is a program, named after the file without its extension
+     */
+    private static List<Program> load(Path dir, CompileService compiler) throws IOException {
+        final List<CompletableFuture<Program>> compiling = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                final String fileName = file.getFileName().toString();
+                final int dot = fileName.lastIndexOf('.');
+                compiling.add(compiler.compile(Files.readString(file), dot > 0 ? fileName.substring(0, dot) : fileName));
+            }
+        }
+        final List<Program> programs = new ArrayList<>(compiling.size());
+        for (CompletableFuture<Program> future : compiling) {
+            programs.add(future.join());
+        }
+        return programs;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: BatchRunner <dir> [--ticks N] [--budget N] [--threads N]");
+    }
+}
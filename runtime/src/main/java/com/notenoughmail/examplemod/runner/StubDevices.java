@@ -0,0 +1,45 @@
+package com.notenoughmail.examplemod.runner;
+
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.device.IDeviceManager;
+import com.notenoughmail.examplemod.core.network.ChannelNetwork;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.Program;
+
+/**
+ * Stands in for the devices of the world. Every port reads a value derived from the tick and its index, so runs are
+ * repeatable, writes are only counted and all programs share a single network
+ */
+class StubDevices implements IDeviceManager {
+
+    private final ChannelNetwork network = new ChannelNetwork();
+    private int tick = 0;
+    long portWrites = 0;
+    long channelWrites = 0;
+
+    void nextTick() {
+        tick++;
+    }
+
+    @Override
+    public void readPorts(Program program, double[] ports) {
+        for (int i = 0 ; i < ports.length ; i++) {
+            ports[i] = (tick + i) % 16;
+        }
+    }
+
+    @Override
+    public ChannelNetwork getNetwork(Program program) {
+        return network;
+    }
+
+    @Override
+    public void writePort(Program program, DevicePort port, double value) {
+        portWrites++;
+    }
+
+    @Override
+    public void writeChannel(Program program, NetworkChannel channel, double value) {
+        channelWrites++;
+    }
+}
@@ -0,0 +1,308 @@
+package com.notenoughmail.examplemod.util;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import com.notenoughmail.examplemod.core.device.DevicePort;
+import com.notenoughmail.examplemod.core.network.NetworkChannel;
+import com.notenoughmail.examplemod.core.program.Register;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An open-addressing map from names to typed primitive values. Lookups return a handle, which is then used to
+ * query the {@link #kind(int) kind} and value of the symbol, so resolving a symbol never allocates
+ * <p>
+ * A table may be layered on top of an immutable parent, such as {@link #BUILTINS}, which is consulted for any
+ * name the table itself does not contain
+ */
+public class SymbolTable {
+
+    public static final int NONE = -1;
+
+    public static final byte REGISTER = 0;
+    public static final byte CONSTANT = 1;
+    public static final byte PORT = 2;
+    public static final byte CHANNEL = 3;
+    public static final byte LABEL = 4;
+
+    /**
+     * The registers, ports, channels, and constants every program can use
+     */
+    public static final SymbolTable BUILTINS = createBuiltins();
+
+    private static final int PARENT_FLAG = 1 << 30;
+
+    private static SymbolTable createBuiltins() {
+        final SymbolTable table = new SymbolTable(null, 128);
+        for (Register reg : Register.VALUES) {
+            table.put(reg.name(), REGISTER, reg.ordinal());
+        }
+        for (DevicePort port : DevicePort.VALUES) {
+            table.put(port.name(), PORT, port.ordinal());
+        }
+        for (NetworkChannel channel : NetworkChannel.VALUES) {
+            table.put(channel.name(), CHANNEL, channel.ordinal());
+        }
+        table.putConstant("true", 1D);
+        table.putConstant("false", 0D);
+        table.putConstant("pi", Math.PI);
+        table.putConstant("e", Math.E);
+        table.frozen = true;
+        return table;
+    }
+
+    @Nullable
+    private final SymbolTable parent;
+    private String[] keys;
+    private int[] hashes;
+    private byte[] kinds;
+    private long[] values;
+    private int size = 0;
+    private boolean frozen = false;
+
+    public SymbolTable() {
+        this(BUILTINS, 8);
+    }
+
+    public SymbolTable(@Nullable SymbolTable parent, int expectedSize) {
+        if (parent != null && parent.parent != null) {
+            throw new IllegalArgumentException("The parent of a symbol table may not have a parent itself");
+        }
+        this.parent = parent;
+        final int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        kinds = new byte[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Computes the same hash as {@link String#hashCode()} over a region of a char sequence
+     */
+    public static int hash(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int i = start ; i < end ; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void put(String key, byte kind, long value) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Symbol table is immutable");
+        }
+        final int hash = key.hashCode();
+        int slot = slot(key, 0, key.length(), hash);
+        if (keys[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                slot = slot(key, 0, key.length(), hash);
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            size++;
+        }
+        kinds[slot] = kind;
+        values[slot] = value;
+    }
+
+    /**
+     * @return The names defined in this table, not including those of the parent, in no particular order
+     */
+    public List<String> keys() {
+        final List<String> names = new ArrayList<>(size);
+        for (String key : keys) {
+            if (key != null) {
+                names.add(key);
+            }
+        }
+        return names;
+    }
+
+    public void putConstant(String key, double value) {
+        put(key, CONSTANT, Double.doubleToRawLongBits(value));
+    }
+
+    public void putLabel(String key, int line) {
+        put(key, LABEL, line);
+    }
+
+    /**
+     * Removes a name from this table, the parent table is not affected
+     */
+    public void remove(String key) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Symbol table is immutable");
+        }
+        int slot = slot(key, 0, key.length(), key.hashCode());
+        if (keys[slot] == null) {
+            return;
+        }
+        // Backward shift deletion, so that no tombstones are needed
+        final int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (keys[next] != null) {
+            final int ideal = mix(hashes[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                hashes[slot] = hashes[next];
+                kinds[slot] = kinds[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = null;
+        size--;
+    }
+
+    public void clear() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Symbol table is immutable");
+        }
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    /**
+     * @return A handle to the symbol, or {@link #NONE} if neither this table nor its parent contain it
+     */
+    public int find(String key) {
+        return find(key, 0, key.length(), key.hashCode());
+    }
+
+    /**
+     * @return A handle to the symbol named by the region {@code [start, end)} of the char sequence, or {@link #NONE}
+     */
+    public int find(CharSequence chars, int start, int end) {
+        return find(chars, start, end, hash(chars, start, end));
+    }
+
+    private int find(CharSequence chars, int start, int end, int hash) {
+        final int slot = slot(chars, start, end, hash);
+        if (keys[slot] != null) {
+            return slot;
+        } else if (parent != null) {
+            final int parentSlot = parent.slot(chars, start, end, hash);
+            if (parent.keys[parentSlot] != null) {
+                return parentSlot | PARENT_FLAG;
+            }
+        }
+        return NONE;
+    }
+
+    public byte kind(int handle) {
+        return (handle & PARENT_FLAG) != 0 ? parent.kinds[handle & ~PARENT_FLAG] : kinds[handle];
+    }
+
+    public int intValue(int handle) {
+        return (int) rawValue(handle);
+    }
+
+    public double doubleValue(int handle) {
+        return Double.longBitsToDouble(rawValue(handle));
+    }
+
+    private long rawValue(int handle) {
+        return (handle & PARENT_FLAG) != 0 ? parent.values[handle & ~PARENT_FLAG] : values[handle];
+    }
+
+    /**
+     * @return The line of the label, or -1 if it does not exist
+     */
+    public int getLabel(String key) {
+        final int handle = find(key);
+        return handle != NONE && kind(handle) == LABEL ? intValue(handle) : -1;
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot it would be put into
+     */
+    private int slot(CharSequence chars, int start, int end, int hash) {
+        final int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (true) {
+            final String key = keys[slot];
+            if (key == null || (hashes[slot] == hash && key.length() == end - start && regionEquals(key, chars, start))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean regionEquals(String key, CharSequence chars, int start) {
+        if (chars instanceof String str) {
+            return key.regionMatches(0, str, start, key.length());
+        }
+        for (int i = 0 ; i < key.length() ; i++) {
+            if (key.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resize() {
+        final String[] oldKeys = keys;
+        final int[] oldHashes = hashes;
+        final byte[] oldKinds = kinds;
+        final long[] oldValues = values;
+        final int capacity = oldKeys.length * 2;
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        kinds = new byte[capacity];
+        values = new long[capacity];
+        final int mask = capacity - 1;
+        for (int i = 0 ; i < oldKeys.length ; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                kinds[slot] = oldKinds[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the symbols of this table, but not of its parent
+     */
+    public void write(DataCompound tag) {
+        for (int i = 0 ; i < keys.length ; i++) {
+            if (keys[i] != null) {
+                final DataCompound entry = tag.putCompound(keys[i]);
+                entry.putByte("kind", kinds[i]);
+                entry.putLong("value", values[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the symbols written by {@link #write(DataCompound)}, plain ints are read as labels
+     */
+    public static SymbolTable read(DataCompound tag, @Nullable SymbolTable parent) {
+        final SymbolTable table = new SymbolTable(parent, tag.size());
+        for (String key : tag.keys()) {
+            if (tag.containsInt(key)) {
+                table.putLabel(key, tag.getInt(key));
+            } else {
+                final DataCompound entry = tag.getCompound(key);
+                table.put(key, entry.getByte("kind"), entry.getLong("value"));
+            }
+        }
+        return table;
+    }
+}
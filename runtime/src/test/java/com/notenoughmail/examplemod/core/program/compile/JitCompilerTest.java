@@ -0,0 +1,70 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.bench.Script;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JitCompilerTest {
+
+    private static final int RUNS = 20;
+
+    @ParameterizedTest
+    @EnumSource(Script.class)
+    void scriptsMatchInterpreter(Script script) {
+        assertMatchesInterpreter(script.source, false);
+        assertMatchesInterpreter(script.source, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "div r0 0 0\neql r1 r0 r0\neql r2 r0 0\neqz r3 r0\nltz r4 r0\ngtz r5 r0",
+            "div r0 0 0\nblt a r0 1\nadd r1 r1 1\na:\nbgt b r0 -1\nadd r2 r2 1\nb:\nblt c 1 r0\nadd r3 r3 1\nc:\nbgt d -1 r0\nadd r4 r4 1\nd:",
+            "div r0 0 0\nbez a r0\nadd r1 r1 1\na:\nbnz b r0\nadd r2 r2 1\nb:",
+            "set r0 -0\neqz r1 r0\neql r2 r0 0\nltz r3 r0\ndiv r4 1 r0\nmod r5 1 0\nsqr r6 -1\nmax r7 r6 1\nmin r8 r0 0",
+            "l:\nadd r0 r0 1\nmod r1 r0 3\nbez s r1\nyld\ns:\nbsl r2 r0 60\nbsr r3 r2 r0\nnot r4 r3\nblt l r0 10"
+    })
+    void matchesInterpreter(String source) {
+        assertMatchesInterpreter(source, false);
+        assertMatchesInterpreter(source, true);
+    }
+
+    @Test
+    void nanComparesAreFalse() {
+        final Program program = new Program("div r0 0 0\neql r1 r0 r0\nltz r2 r0\ngtz r3 r0\neqz r4 r0\nblt a r0 1\nbgt a r0 -1\nbez a r0\nset r5 1\na:", "nan");
+        final JitCode jit = JitCompiler.compile(program.getCode(), program);
+        assertNotNull(jit);
+        program.beginRun();
+        program.endRun(jit.run(program, program.registers, 0, Program.DEFAULT_INSTRUCTION_BUDGET));
+        assertArrayEquals(new double[]{Double.NaN, 0, 0, 0, 0, 1}, Arrays.copyOf(program.registers, 6));
+    }
+
+    private static void assertMatchesInterpreter(String source, boolean optimize) {
+        CompiledProgram code = ProgramCompiler.compile(source);
+        assertNull(code.error, source);
+        if (optimize) {
+            code = Optimizer.optimize(code);
+        }
+        final Program interpreted = new Program(code, "interpreted");
+        final Program compiled = new Program(code, "compiled");
+        final JitCode jit = JitCompiler.compile(code, compiled);
+        assertNotNull(jit, source);
+        for (int i = 0 ; i < RUNS ; i++) {
+            final int next = interpreted.beginRun() ? Interpreter.run(code, interpreted, interpreted.getCurrentLine(), Program.DEFAULT_INSTRUCTION_BUDGET) : 0;
+            final int jitNext = compiled.beginRun() ? jit.run(compiled, compiled.registers, compiled.getCurrentLine(), Program.DEFAULT_INSTRUCTION_BUDGET) : 0;
+            assertEquals(next, jitNext, source);
+            interpreted.endRun(next);
+            compiled.endRun(jitNext);
+            assertArrayEquals(interpreted.registers, compiled.registers, source);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.bench.Script;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OptimizerTest {
+
+    private static final int RUNS = 50;
+
+    @ParameterizedTest
+    @EnumSource(Script.class)
+    void scriptsMatchUnoptimized(Script script) {
+        assertSameRegisters(script.source);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Constant propagation
+            "set r0 3\nadd r1 r0 4\nmul r2 r1 r1\nsub r3 r2 r0",
+            // Dead writes, only the last one of each register may be dropped
+            "set r0 1\nset r0 2\nadd r1 r0 r0\nset r1 r0\nadd r2 r2 1",
+            // Branches on known values
+            "set r0 2\nbgt skip r0 1\nset r1 5\nskip:\nadd r2 r2 1\nbez end r0\nset r3 1\nend:",
+            // NaN is neither equal to, less than nor greater than anything, so it must not fold like a number
+            "div r0 0 0\neql r1 r0 r0\nltz r2 r0\ngtz r3 r0\neqz r4 r0\nbez a r0\nadd r5 r5 1\na:\nbnz b r0\nadd r6 r6 1\nb:",
+            // Signed zeros
+            "set r0 -0\nneg r1 0\nadd r2 r1 0\nmul r3 r2 -1\ndiv r4 1 r0",
+            // Values carried over between runs
+            "l:\nadd r0 r0 1\nyld\nmul r1 r0 2\nblt l r0 5"
+    })
+    void snippetsMatchUnoptimized(String source) {
+        assertSameRegisters(source);
+    }
+
+    private static void assertSameRegisters(String source) {
+        final CompiledProgram code = ProgramCompiler.compile(source);
+        assertNull(code.error, source);
+        final Program plain = new Program(code, "plain");
+        final Program optimized = new Program(Optimizer.optimize(code), "optimized");
+        for (int i = 0 ; i < RUNS ; i++) {
+            run(plain);
+            run(optimized);
+            assertArrayEquals(plain.registers, optimized.registers, source);
+        }
+    }
+
+    private static void run(Program program) {
+        if (program.beginRun()) {
+            program.endRun(Interpreter.run(program.getCode(), program, program.getCurrentLine(), Program.DEFAULT_INSTRUCTION_BUDGET));
+        }
+    }
+}
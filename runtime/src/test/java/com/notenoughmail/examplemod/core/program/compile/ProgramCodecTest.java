@@ -0,0 +1,106 @@
+package com.notenoughmail.examplemod.core.program.compile;
+
+import com.notenoughmail.examplemod.bench.Script;
+import com.notenoughmail.examplemod.core.data.MapCompound;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ProgramCodecTest {
+
+    private static final String COUNTER = """
+            alias x r1
+            alias k 2.5
+            # counter
+            l:
+            add x x k
+            prt hello there
+            yld
+            blt l x 1e3
+            con x 1e999""";
+
+    @ParameterizedTest
+    @EnumSource(Script.class)
+    void readCodeMatchesWritten(Script script) {
+        final CompiledProgram written = ProgramCompiler.compile(script.source);
+        final MapCompound tag = new MapCompound();
+        ProgramCodec.write(written, tag);
+        final CompiledProgram read = ProgramCodec.read(tag);
+
+        assertNull(read.error);
+        assertArrayEquals(written.code, read.code);
+        assertArrayEquals(written.lineNumbers, read.lineNumbers);
+        assertArrayEquals(written.constants, read.constants);
+        assertArrayEquals(written.strings, read.strings);
+        assertEquals(written.source.text(), read.source.text());
+
+        final Program before = new Program(written, "written");
+        final Program after = new Program(read, "read");
+        for (int i = 0 ; i < 10 ; i++) {
+            before.run();
+            after.run();
+            assertArrayEquals(before.registers, after.registers);
+        }
+    }
+
+    @Test
+    void optimizedCodeIsWrittenUnoptimized() {
+        final CompiledProgram written = ProgramCompiler.compile(COUNTER);
+        final MapCompound tag = new MapCompound();
+        ProgramCodec.write(Optimizer.optimize(written), tag);
+        assertArrayEquals(written.code, ProgramCodec.read(tag).code);
+    }
+
+    @Test
+    void readProgramResumesWhereItStopped() {
+        final Program written = new Program(COUNTER, "written");
+        for (int i = 0 ; i < 3 ; i++) {
+            written.run();
+        }
+        final MapCompound tag = new MapCompound();
+        written.write(tag);
+        final Program read = Program.read(tag);
+
+        assertEquals(COUNTER, read.getSource());
+        assertEquals(written.getCurrentLine(), read.getCurrentLine());
+        for (int i = 0 ; i < 500 ; i++) {
+            written.run();
+            read.run();
+            assertArrayEquals(written.registers, read.registers);
+        }
+        assertEquals(written.console.format().toString(), read.console.format().toString());
+    }
+
+    @Test
+    void readProgramsShareCode() {
+        final MapCompound tag = new MapCompound();
+        ProgramCodec.write(ProgramCompiler.compile(COUNTER), tag);
+        assertSame(ProgramCache.read(tag, false), ProgramCache.read(tag, false));
+        assertSame(ProgramCache.read(tag, true), ProgramCache.read(tag, true));
+    }
+
+    @Test
+    void readProgramIsEditable() {
+        final SourceEdit edit = SourceEdit.replace(4, 1, "add x x 5");
+        final Program fresh = new Program(COUNTER, "fresh");
+        final MapCompound tag = new MapCompound();
+        fresh.write(tag);
+        final Program read = Program.read(tag);
+
+        fresh.edit(edit);
+        read.edit(edit);
+        assertEquals(fresh.getSource(), read.getSource());
+        for (int i = 0 ; i < 300 ; i++) {
+            fresh.run();
+            read.run();
+        }
+        assertArrayEquals(fresh.registers, read.registers);
+        assertNull(read.getError());
+    }
+}
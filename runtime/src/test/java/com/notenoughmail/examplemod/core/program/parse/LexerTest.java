@@ -0,0 +1,100 @@
+package com.notenoughmail.examplemod.core.program.parse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexerTest {
+
+    @Test
+    void skipsBlankAndCommentLines() {
+        final Lexer lexer = new Lexer("\n# comment\n   \t\n  add r0\t r1 2 # trailing\n\r\n#\nyld");
+        assertTrue(lexer.nextLine());
+        assertEquals(3, lexer.sourceLine());
+        assertEquals(List.of("add", "r0", "r1", "2"), tokens(lexer));
+        assertTrue(lexer.nextLine());
+        assertEquals(6, lexer.sourceLine());
+        assertEquals(List.of("yld"), tokens(lexer));
+        assertFalse(lexer.nextLine());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "\n\n", "# only a comment", " \t\r\n#\n"})
+    void emptySourceHasNoLines(String source) {
+        assertFalse(new Lexer(source).nextLine());
+    }
+
+    @Test
+    void carriageReturnsAreWhitespace() {
+        final Lexer lexer = new Lexer("add r0 r0 1\r\nyld\r\n");
+        assertTrue(lexer.nextLine());
+        assertEquals(List.of("add", "r0", "r0", "1"), tokens(lexer));
+        assertTrue(lexer.nextLine());
+        assertEquals(List.of("yld"), tokens(lexer));
+        assertFalse(lexer.nextLine());
+    }
+
+    @Test
+    void commentsOnlyStartTokens() {
+        final Lexer lexer = new Lexer("prt a#b   c # d");
+        assertTrue(lexer.nextLine());
+        assertEquals(List.of("prt", "a#b", "c"), tokens(lexer));
+        assertEquals("a#b   c", lexer.text(1));
+    }
+
+    @Test
+    void lexesRegion() {
+        final String source = "set r0 1\nadd r0 r0 1\nyld";
+        final Lexer lexer = new Lexer(source, source.indexOf('\n') + 1, source.lastIndexOf('\n'), 1);
+        assertTrue(lexer.nextLine());
+        assertEquals(1, lexer.sourceLine());
+        assertEquals(List.of("add", "r0", "r0", "1"), tokens(lexer));
+        assertFalse(lexer.nextLine());
+    }
+
+    @Test
+    void parsesNumbers() {
+        assertNumber(12, "12");
+        assertNumber(-1.5, "-1.5");
+        assertNumber(0.1, "0.1");
+        assertNumber(1e-3, "1e-3");
+        assertNumber(-1e3, "-1e+3");
+        assertNumber(3e8, "3E8");
+        assertNumber(-0D, "-0");
+        assertNumber(Double.POSITIVE_INFINITY, "1e999");
+        assertNumber(0D, "1e-999");
+        assertNumber(1.2345678901234568E23, "123456789012345678901234");
+        assertNumber(31, "0x1F");
+        assertNumber(-16, "-0x10");
+        assertNumber(1.5, "0x1.8");
+        assertNumber(16, "0x1p4");
+        assertNumber(0.25, "0x1p-2");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-", "abc", "1e", "1e+", "1e-", "1.2.3", "--1", "1x", "0x", "0xG", "0x1p", "e5", "1e5.0"})
+    void invalidNumbersAreNaN(String token) {
+        assertNumber(Double.NaN, token);
+    }
+
+    private static void assertNumber(double expected, String token) {
+        final Lexer lexer = new Lexer(token);
+        assertTrue(lexer.nextLine());
+        assertEquals(expected, lexer.number(0), token);
+    }
+
+    private static List<String> tokens(Lexer lexer) {
+        final List<String> tokens = new ArrayList<>();
+        for (int i = 0 ; i < lexer.tokenCount() ; i++) {
+            tokens.add(lexer.token(i));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,48 @@
+package com.notenoughmail.examplemod.bench;
+
+/**
+ * Representative programs for the benchmarks
+ */
+public enum Script {
+    ARITHMETIC("""
+            add r0 r0 1
+            mul r1 r0 3
+            sub r2 r1 r0
+            div r3 r2 7
+            mod r4 r0 13
+            pow r5 r4 2
+            max r6 r5 r3
+            min r7 r6 100"""),
+    BITWISE("""
+            add r0 r0 1
+            and r1 r0 255
+            or r2 r1 4096
+            xor r3 r2 r0
+            bsl r4 r3 2
+            bsr r5 r4 1
+            not r6 r5"""),
+    TRIG("""
+            add r0 r0 0.01
+            sin r1 r0
+            cos r2 r0
+            tan r3 r0
+            mul r4 r1 r1
+            mul r5 r2 r2
+            add r6 r4 r5"""),
+    LOOP("""
+            alias counter r0
+            alias total r1
+            set counter 0
+            loop:
+            add counter counter 1
+            add total total counter
+            blt loop counter 100""");
+
+    public static final Script[] VALUES = values();
+
+    public final String source;
+
+    Script(String source) {
+        this.source = source;
+    }
+}
@@ -0,0 +1,37 @@
+package com.notenoughmail.examplemod.bench;
+
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.compile.CompiledProgram;
+import com.notenoughmail.examplemod.core.program.compile.ProgramCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and compiling source, both uncached and through the {@link com.notenoughmail.examplemod.core.program.compile.ProgramCache ProgramCache}
+ * as constructing a {@link Program} does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompileBenchmark {
+
+    @Param({"ARITHMETIC", "BITWISE", "TRIG", "LOOP"})
+    public Script script;
+
+    @Benchmark
+    public CompiledProgram compile() {
+        return ProgramCompiler.compile(script.source);
+    }
+
+    @Benchmark
+    public Program construct() {
+        return new Program(script.source, "bench");
+    }
+}
@@ -0,0 +1,69 @@
+package com.notenoughmail.examplemod.bench;
+
+import com.notenoughmail.examplemod.NbtCompound;
+import com.notenoughmail.examplemod.core.program.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading programs. Saving reuses whatever did not change since the last save, so {@link #write()} measures
+ * the cost of saving an idle program. Loading only decodes the code once it is needed, so {@link #readAndRun()} includes it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NbtBenchmark {
+
+    @Param({"ARITHMETIC", "LOOP"})
+    public Script script;
+
+    private Program program;
+    private NbtCompound saved;
+
+    @Setup
+    public void setup() {
+        program = new Program(script.source, "bench");
+        saved = write();
+    }
+
+    @Benchmark
+    public NbtCompound write() {
+        final NbtCompound tag = new NbtCompound();
+        program.write(tag);
+        return tag;
+    }
+
+    /**
+     * A program which ran since it was last written, so its state is written anew while its code is reused
+     */
+    @Benchmark
+    public NbtCompound writeChanged() {
+        program.registers[0]++;
+        return write();
+    }
+
+    @Benchmark
+    public Program read() {
+        return Program.read(saved);
+    }
+
+    @Benchmark
+    public Program readAndRun() {
+        final Program loaded = Program.read(saved);
+        loaded.run();
+        return loaded;
+    }
+
+    @Benchmark
+    public Program roundTrip() {
+        return Program.read(write());
+    }
+}
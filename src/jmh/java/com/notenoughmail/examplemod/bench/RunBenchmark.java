@@ -0,0 +1,42 @@
+package com.notenoughmail.examplemod.bench;
+
+import com.notenoughmail.examplemod.core.program.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single program run once per invocation, after warmup this measures the JIT compiled code
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RunBenchmark {
+
+    @Param({"ARITHMETIC", "BITWISE", "TRIG", "LOOP"})
+    public Script script;
+
+    @Param({"true", "false"})
+    public boolean optimize;
+
+    private Program program;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        program = new Program(script.source, "bench", optimize);
+    }
+
+    @Benchmark
+    public double run() {
+        program.run(Program.DEFAULT_INSTRUCTION_BUDGET);
+        return program.registers[1];
+    }
+}
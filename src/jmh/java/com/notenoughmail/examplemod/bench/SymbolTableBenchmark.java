@@ -0,0 +1,54 @@
+package com.notenoughmail.examplemod.bench;
+
+import com.notenoughmail.examplemod.util.SymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symbol lookups as done by the parser, for user aliases which fall back to the builtin registers, ports and channels
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SymbolTableBenchmark {
+
+    @Param({"8", "256"})
+    public int aliases;
+
+    private SymbolTable table;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        table = new SymbolTable(SymbolTable.BUILTINS, aliases);
+        keys = new String[aliases * 2];
+        for (int i = 0 ; i < aliases ; i++) {
+            table.putConstant("alias" + i, i);
+            keys[i * 2] = "alias" + i;
+            keys[i * 2 + 1] = "r" + (i % 16);
+        }
+    }
+
+    @Benchmark
+    public void find(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(table.find(key));
+        }
+    }
+
+    @Benchmark
+    public void findMissing(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(table.find(key, 0, key.length() - 1));
+        }
+    }
+}
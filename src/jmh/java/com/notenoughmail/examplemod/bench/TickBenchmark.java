@@ -0,0 +1,61 @@
+package com.notenoughmail.examplemod.bench;
+
+import com.notenoughmail.examplemod.core.engine.ProgramScheduler;
+import com.notenoughmail.examplemod.core.program.IProgramManager;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.ProgramShard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulated server tick of many programs through the {@link ProgramScheduler}. With shared code every program runs
+ * the same script, otherwise each has its own copy so none are batched together
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TickBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int programs;
+
+    @Param({"true", "false"})
+    public boolean sharedCode;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private ProgramScheduler scheduler;
+
+    @Setup
+    public void setup() {
+        scheduler = new ProgramScheduler();
+        final ProgramShard shard = scheduler.registry.addShard(new IProgramManager() {});
+        for (int i = 0 ; i < programs ; i++) {
+            final String source = Script.VALUES[i % Script.VALUES.length].source;
+            scheduler.registry.add(shard, new Program(sharedCode ? source : source + "\n# " + i, "bench" + i));
+        }
+        if (parallel) {
+            scheduler.start(0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void tick() {
+        scheduler.tick(Program.DEFAULT_INSTRUCTION_BUDGET);
+    }
+}
@@ -0,0 +1,43 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.program.Program;
+import net.neoforged.neoforge.common.ModConfigSpec;
+
+public class Config {
+
+    private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
+
+    private static final ModConfigSpec.IntValue INSTRUCTION_BUDGET = BUILDER
+            .comment("The maximum number of instructions a program may execute per tick before it is paused until the next tick")
+            .defineInRange("instructionBudget", Program.DEFAULT_INSTRUCTION_BUDGET, 1, Integer.MAX_VALUE);
+
+    private static final ModConfigSpec.IntValue WORKER_THREADS = BUILDER
+            .comment("The number of threads programs are run on, 0 uses one less than the number of available processors")
+            .defineInRange("workerThreads", 0, 0, 256);
+
+    private static final ModConfigSpec.IntValue COMPILER_THREADS = BUILDER
+            .comment("The number of threads programs are compiled on, 0 uses half the number of available processors")
+            .defineInRange("compilerThreads", 0, 0, 64);
+
+    private static final ModConfigSpec.IntValue SYNC_INTERVAL = BUILDER
+            .comment("The number of ticks between updates of the registers and console of a program a player has open")
+            .defineInRange("syncInterval", 4, 1, 200);
+
+    public static final ModConfigSpec SPEC = BUILDER.build();
+
+    public static int instructionBudget() {
+        return SPEC.isLoaded() ? INSTRUCTION_BUDGET.get() : Program.DEFAULT_INSTRUCTION_BUDGET;
+    }
+
+    public static int workerThreads() {
+        return SPEC.isLoaded() ? WORKER_THREADS.get() : 0;
+    }
+
+    public static int compilerThreads() {
+        return SPEC.isLoaded() ? COMPILER_THREADS.get() : 0;
+    }
+
+    public static int syncInterval() {
+        return SPEC.isLoaded() ? SYNC_INTERVAL.get() : 4;
+    }
+}
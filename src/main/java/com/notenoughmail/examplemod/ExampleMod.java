@@ -1,12 +1,18 @@
 package com.notenoughmail.examplemod;
 
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.ModLoadingContext;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.config.ModConfig;
 
 @Mod(ExampleMod.MODID)
 public class ExampleMod {
 
     public static final String MODID = "examplemod";
 
-    public ExampleMod(IEventBus modEventBus) {}
+    public ExampleMod(IEventBus modEventBus) {
+        ModLoadingContext.get().registerConfig(ModConfig.Type.SERVER, Config.SPEC);
+        ProgramEvents.init();
+        modEventBus.addListener(ProgramSync::register);
+    }
 }
@@ -0,0 +1,20 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.program.IProgramManager;
+import com.notenoughmail.examplemod.core.program.Program;
+import net.minecraft.server.level.ServerPlayer;
+
+/**
+ * A program manager whose programs players may {@link ProgramSync#watch(int) watch}. Programs of any other manager
+ * can only be watched by operators
+ */
+public interface IWatchableManager extends IProgramManager {
+
+    /**
+     * Called on the server thread when the player asks to watch the program, and again before every delta sent to them
+     *
+     * @return If the player may see the program's registers and console, such as while they are in range of the
+     * machine running it
+     */
+    boolean canWatch(ServerPlayer player, Program program);
+}
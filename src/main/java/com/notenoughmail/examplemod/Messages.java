@@ -0,0 +1,23 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.Message;
+import net.minecraft.network.chat.Component;
+
+/**
+ * Turns the runtime's {@link Message messages} into components, translated on the client with the mod's lang files
+ */
+public class Messages {
+
+    public static Component toComponent(Message message) {
+        if (message.isLiteral()) {
+            return Component.literal(message.toString());
+        }
+        final Object[] args = message.args().clone();
+        for (int i = 0 ; i < args.length ; i++) {
+            if (args[i] instanceof Message arg) {
+                args[i] = toComponent(arg);
+            }
+        }
+        return Component.translatable(message.key(), args);
+    }
+}
@@ -0,0 +1,184 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.data.DataCompound;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link DataCompound} backed by a {@link CompoundTag}, laid out the same way programs were saved before the
+ * runtime was split from the mod
+ */
+public record NbtCompound(CompoundTag tag) implements DataCompound {
+
+    public NbtCompound() {
+        this(new CompoundTag());
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return tag.contains(key);
+    }
+
+    @Override
+    public boolean containsInt(String key) {
+        return tag.contains(key, Tag.TAG_INT);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return tag.getAllKeys();
+    }
+
+    @Override
+    public int size() {
+        return tag.size();
+    }
+
+    @Override
+    public byte getByte(String key) {
+        return tag.getByte(key);
+    }
+
+    @Override
+    public void putByte(String key, byte value) {
+        tag.putByte(key, value);
+    }
+
+    @Override
+    public int getInt(String key) {
+        return tag.getInt(key);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        tag.putInt(key, value);
+    }
+
+    @Override
+    public long getLong(String key) {
+        return tag.getLong(key);
+    }
+
+    @Override
+    public void putLong(String key, long value) {
+        tag.putLong(key, value);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        return tag.getDouble(key);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        tag.putDouble(key, value);
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        return tag.getBoolean(key);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        tag.putBoolean(key, value);
+    }
+
+    @Override
+    public String getString(String key) {
+        return tag.getString(key);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        tag.putString(key, value);
+    }
+
+    @Override
+    public int[] getIntArray(String key) {
+        return tag.getIntArray(key);
+    }
+
+    @Override
+    public void putIntArray(String key, int[] value) {
+        tag.put(key, new IntArrayTag(value));
+    }
+
+    @Override
+    public long[] getLongArray(String key) {
+        return tag.getLongArray(key);
+    }
+
+    @Override
+    public void putLongArray(String key, long[] value) {
+        tag.put(key, new LongArrayTag(value));
+    }
+
+    @Override
+    public String[] getStringList(String key) {
+        final ListTag list = tag.getList(key, Tag.TAG_STRING);
+        final String[] strings = new String[list.size()];
+        for (int i = 0 ; i < strings.length ; i++) {
+            strings[i] = list.getString(i);
+        }
+        return strings;
+    }
+
+    @Override
+    public void putStringList(String key, String[] value) {
+        final ListTag list = new ListTag();
+        for (String string : value) {
+            list.add(StringTag.valueOf(string));
+        }
+        tag.put(key, list);
+    }
+
+    @Override
+    public DataCompound getCompound(String key) {
+        return new NbtCompound(tag.getCompound(key));
+    }
+
+    @Override
+    public DataCompound putCompound(String key) {
+        final CompoundTag child = new CompoundTag();
+        tag.put(key, child);
+        return new NbtCompound(child);
+    }
+
+    @Override
+    public void put(String key, DataCompound value) {
+        tag.put(key, ((NbtCompound) value).tag);
+    }
+
+    @Override
+    public List<DataCompound> getCompoundList(String key) {
+        final ListTag list = tag.getList(key, Tag.TAG_COMPOUND);
+        final List<DataCompound> compounds = new ArrayList<>(list.size());
+        for (int i = 0 ; i < list.size() ; i++) {
+            compounds.add(new NbtCompound(list.getCompound(i)));
+        }
+        return compounds;
+    }
+
+    @Override
+    public DataCompound addCompound(String key) {
+        final ListTag list;
+        if (tag.contains(key, Tag.TAG_LIST)) {
+            list = tag.getList(key, Tag.TAG_COMPOUND);
+        } else {
+            list = new ListTag();
+            tag.put(key, list);
+        }
+        final CompoundTag child = new CompoundTag();
+        list.add(child);
+        return new NbtCompound(child);
+    }
+}
@@ -0,0 +1,66 @@
+package com.notenoughmail.examplemod;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.notenoughmail.examplemod.core.program.Program;
+import com.notenoughmail.examplemod.core.program.ProgramHandle;
+import com.notenoughmail.examplemod.core.program.compile.Profile;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@code /examplemod profile <program> start|stop|show}
+ */
+public class ProgramCommands {
+
+    public static void register(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal(ExampleMod.MODID)
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("profile")
+                        .then(Commands.argument("program", StringArgumentType.string())
+                                .then(Commands.literal("start").executes(context -> setProfiling(context, true)))
+                                .then(Commands.literal("stop").executes(context -> setProfiling(context, false)))
+                                .then(Commands.literal("show").executes(ProgramCommands::showProfile)))));
+    }
+
+    private static int setProfiling(CommandContext<CommandSourceStack> context, boolean profiling) {
+        final Program program = findProgram(context);
+        if (program == null) {
+            return 0;
+        }
+        program.setProfiling(profiling);
+        context.getSource().sendSuccess(() -> Component.translatable(profiling ? "command.examplemod.profile.started" : "command.examplemod.profile.stopped", program.name), true);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int showProfile(CommandContext<CommandSourceStack> context) {
+        final Program program = findProgram(context);
+        if (program == null) {
+            return 0;
+        }
+        final Profile profile = program.getProfile();
+        if (profile == null) {
+            context.getSource().sendFailure(Component.translatable("command.examplemod.profile.none", program.name));
+            return 0;
+        }
+        for (String line : profile.report(program.name)) {
+            context.getSource().sendSuccess(() -> Component.literal(line), false);
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    @Nullable
+    private static Program findProgram(CommandContext<CommandSourceStack> context) {
+        final String name = StringArgumentType.getString(context, "program");
+        final ProgramHandle handle = ProgramEvents.SCHEDULER.registry.find(name);
+        if (handle == null) {
+            context.getSource().sendFailure(Component.translatable("command.examplemod.no_such_program", name));
+            return null;
+        }
+        return handle.program;
+    }
+}
@@ -0,0 +1,52 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.engine.CompileService;
+import com.notenoughmail.examplemod.core.engine.ProgramScheduler;
+import com.notenoughmail.examplemod.core.network.NetworkTopology;
+import net.minecraft.core.GlobalPos;
+import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.server.ServerStartingEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+public class ProgramEvents {
+
+    public static final ProgramScheduler SCHEDULER = new ProgramScheduler();
+    /**
+     * Compiles pasted and loaded programs off the main thread, see {@link ProgramScheduler#addWhenCompiled}
+     */
+    public static final CompileService COMPILER = new CompileService();
+    /**
+     * The connections between networked devices across every level, which device managers look their
+     * {@link com.notenoughmail.examplemod.core.device.IDeviceManager#getNetwork(com.notenoughmail.examplemod.core.program.Program) network} up in
+     */
+    public static final NetworkTopology<GlobalPos> NETWORKS = new NetworkTopology<>();
+
+    public static void init() {
+        NeoForge.EVENT_BUS.addListener(ProgramEvents::onServerStarting);
+        NeoForge.EVENT_BUS.addListener(ProgramEvents::onServerStopped);
+        NeoForge.EVENT_BUS.addListener(ProgramEvents::onServerTick);
+        NeoForge.EVENT_BUS.addListener(ProgramCommands::register);
+        NeoForge.EVENT_BUS.addListener(ProgramSync::onLoggedOut);
+    }
+
+    private static void onServerStarting(ServerStartingEvent event) {
+        SCHEDULER.start(Config.workerThreads());
+        COMPILER.start(Config.compilerThreads());
+    }
+
+    private static void onServerStopped(ServerStoppedEvent event) {
+        COMPILER.shutdown();
+        SCHEDULER.shutdown();
+        SCHEDULER.registry.clear();
+        NETWORKS.clear();
+        ProgramSync.clear();
+    }
+
+    private static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            SCHEDULER.tick(Config.instructionBudget());
+            ProgramSync.tick();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.notenoughmail.examplemod;
+
+import com.notenoughmail.examplemod.core.program.ProgramHandle;
+import com.notenoughmail.examplemod.core.sync.ProgramView;
+import com.notenoughmail.examplemod.core.sync.SyncTracker;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlerEvent;
+import net.neoforged.neoforge.network.handling.PlayPayloadContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the registers and console of the program a player has open on screen in sync with the server. The client
+ * {@link #watch(int) watches} a program while its screen is open, and every {@link Config#syncInterval()} ticks the
+ * server sends each watching player a {@link SyncTracker delta} of what changed, if anything did. Players may only watch
+ * programs whose manager {@link IWatchableManager allows them to}, operators may watch any program
+ */
+public class ProgramSync {
+
+    /**
+     * The program each player is watching, only touched on the server thread
+     */
+    private static final Map<ServerPlayer, Watch> WATCHES = new HashMap<>();
+    private static int ticks = 0;
+
+    private static int watchedId = -1;
+    @Nullable
+    private static ProgramView view;
+
+    public static void register(RegisterPayloadHandlerEvent event) {
+        event.registrar(ExampleMod.MODID)
+                .play(WatchPayload.ID, WatchPayload::new, handlers -> handlers.server(ProgramSync::onWatch))
+                .play(DeltaPayload.ID, DeltaPayload::new, handlers -> handlers.client(ProgramSync::onDelta));
+    }
+
+    /**
+     * Starts watching a program on the client, to be called when its screen opens
+     *
+     * @return The view which will be kept up to date
+     */
+    public static ProgramView watch(int programId) {
+        watchedId = programId;
+        view = new ProgramView();
+        PacketDistributor.SERVER.noArg().send(new WatchPayload(programId));
+        return view;
+    }
+
+    /**
+     * Stops watching on the client, to be called when the screen closes
+     */
+    public static void stopWatching() {
+        if (watchedId != -1) {
+            watchedId = -1;
+            view = null;
+            PacketDistributor.SERVER.noArg().send(new WatchPayload(-1));
+        }
+    }
+
+    @Nullable
+    public static ProgramView getView() {
+        return view;
+    }
+
+    static void tick() {
+        if (WATCHES.isEmpty() || ++ticks < Config.syncInterval()) {
+            return;
+        }
+        ticks = 0;
+        final Iterator<Watch> iterator = WATCHES.values().iterator();
+        while (iterator.hasNext()) {
+            final Watch watch = iterator.next();
+            final ProgramHandle handle = ProgramEvents.SCHEDULER.registry.get(watch.programId);
+            if (handle == null || handle.isRemoved() || !canWatch(watch.player, handle)) {
+                iterator.remove();
+                continue;
+            }
+            final byte[] delta = watch.tracker.delta(handle.program);
+            if (delta != null) {
+                PacketDistributor.PLAYER.with(watch.player).send(new DeltaPayload(watch.programId, delta));
+            }
+        }
+    }
+
+    static void onLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            WATCHES.remove(player);
+        }
+    }
+
+    static void clear() {
+        WATCHES.clear();
+        ticks = 0;
+    }
+
+    private static void onWatch(WatchPayload payload, PlayPayloadContext context) {
+        context.workHandler().execute(() -> context.player().ifPresent(player -> {
+            if (player instanceof ServerPlayer serverPlayer) {
+                final ProgramHandle handle = payload.programId < 0 ? null : ProgramEvents.SCHEDULER.registry.get(payload.programId);
+                if (handle == null || handle.isRemoved() || !canWatch(serverPlayer, handle)) {
+                    WATCHES.remove(serverPlayer);
+                } else {
+                    WATCHES.put(serverPlayer, new Watch(serverPlayer, payload.programId, new SyncTracker()));
+                }
+            }
+        }));
+    }
+
+    private static void onDelta(DeltaPayload payload, PlayPayloadContext context) {
+        context.workHandler().execute(() -> {
+            final ProgramView current = view;
+            if (current != null && payload.programId == watchedId) {
+                try {
+                    current.apply(payload.delta);
+                } catch (IOException e) {
+                    // The view is in an unknown state, so clear it and ask for everything again. The view is reset
+                    // rather than replaced, as the open screen holds on to it
+                    current.reset();
+                    PacketDistributor.SERVER.noArg().send(new WatchPayload(watchedId));
+                }
+            }
+        });
+    }
+
+    private static boolean canWatch(ServerPlayer player, ProgramHandle handle) {
+        return player.hasPermissions(2) || (handle.shard.owner instanceof IWatchableManager manager && manager.canWatch(player, handle.program));
+    }
+
+    private record Watch(ServerPlayer player, int programId, SyncTracker tracker) {}
+
+    /**
+     * Sent by the client to watch a program, or to stop watching with an id of -1
+     */
+    public record WatchPayload(int programId) implements CustomPacketPayload {
+
+        public static final ResourceLocation ID = new ResourceLocation(ExampleMod.MODID, "watch_program");
+
+        public WatchPayload(FriendlyByteBuf buffer) {
+            this(buffer.readVarInt());
+        }
+
+        @Override
+        public void write(FriendlyByteBuf buffer) {
+            buffer.writeVarInt(programId);
+        }
+
+        @Override
+        public ResourceLocation id() {
+            return ID;
+        }
+    }
+
+    /**
+     * Sent by the server with what changed in the watched program
+     */
+    public record DeltaPayload(int programId, byte[] delta) implements CustomPacketPayload {
+
+        public static final ResourceLocation ID = new ResourceLocation(ExampleMod.MODID, "program_delta");
+
+        public DeltaPayload(FriendlyByteBuf buffer) {
+            this(buffer.readVarInt(), buffer.readByteArray());
+        }
+
+        @Override
+        public void write(FriendlyByteBuf buffer) {
+            buffer.writeVarInt(programId);
+            buffer.writeByteArray(delta);
+        }
+
+        @Override
+        public ResourceLocation id() {
+            return ID;
+        }
+    }
+}
@@ -1,6 +0,0 @@
-package com.notenoughmail.examplemod.core.device;
-
-import com.notenoughmail.examplemod.core.program.IProgramManager;
-
-public interface IDeviceManager extends IProgramManager {
-}